@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * BitInputStream reads the codes written by BitOutputStream. Bytes are read from the input stream in bulk and
+ * collected in a 64-bit accumulator, so a code is taken out with shifts only.
+ */
+public class BitInputStream implements LZWCodeReader {
+    /**
+     * Size of the byte buffer
+     */
+    private static final int BUFFER_SIZE = 1 << 13;
+    /**
+     * Input stream
+     */
+    private InputStream in;
+    /**
+     * Bits not read yet, right aligned
+     */
+    private long accumulator;
+    /**
+     * Number of bits in the accumulator
+     */
+    private int bitCount;
+    /**
+     * Bytes read from the input stream
+     */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    /**
+     * Index of the next byte in the buffer
+     */
+    private int bufferPosition;
+    /**
+     * Number of bytes in the buffer
+     */
+    private int bufferSize;
+
+    /**
+     * Constructor method
+     * @param in input stream
+     */
+    public BitInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Read a value of the given width
+     * @param width number of bits, 1 to 31
+     * @return the value, or -1 if fewer than width bits are left
+     * @throws IOException exception
+     */
+    public int readBits(int width) throws IOException {
+        while (bitCount < width) {
+            if (bufferPosition == bufferSize) {
+                bufferSize = in.read(buffer, 0, BUFFER_SIZE);
+                bufferPosition = 0;
+                if (bufferSize <= 0) {
+                    bufferSize = 0;
+                    return -1;
+                }
+            }
+            // fill the accumulator with as many bytes as it can take
+            while (bitCount <= 56 && bufferPosition < bufferSize) {
+                accumulator = (accumulator << 8) | (buffer[bufferPosition++] & 0xFF);
+                bitCount += 8;
+            }
+        }
+        bitCount -= width;
+        return (int) ((accumulator >>> bitCount) & (-1L >>> (64 - width)));
+    }
+
+    /**
+     * Close the input stream
+     * @throws IOException exception
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+}
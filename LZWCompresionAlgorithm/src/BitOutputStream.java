@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * BitOutputStream packs codes of any width from 1 to 32 bits into bytes, most significant bit first. The bits are
+ * collected in a 64-bit accumulator with shifts only and the bytes are written to the output stream in bulk.
+ */
+public class BitOutputStream implements LZWCodeWriter {
+    /**
+     * Size of the byte buffer
+     */
+    private static final int BUFFER_SIZE = 1 << 13;
+    /**
+     * Output stream
+     */
+    private OutputStream out;
+    /**
+     * Bits not written yet, right aligned
+     */
+    private long accumulator;
+    /**
+     * Number of bits in the accumulator, always below 8 between calls
+     */
+    private int bitCount;
+    /**
+     * Bytes not written to the output stream yet
+     */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    /**
+     * Number of bytes in the buffer
+     */
+    private int bufferSize;
+    /**
+     * Number of bits written so far
+     */
+    private long bitsWritten;
+
+    /**
+     * Constructor method
+     * @param out output stream
+     */
+    public BitOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Write the low bits of the value
+     * @param value value to write
+     * @param width number of bits, 1 to 32
+     * @throws IOException exception
+     */
+    public void writeBits(int value, int width) throws IOException {
+        accumulator = (accumulator << width) | (value & (-1L >>> (64 - width)));
+        bitCount += width;
+        bitsWritten += width;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            buffer[bufferSize++] = (byte) (accumulator >>> bitCount);
+            if (bufferSize == BUFFER_SIZE) {
+                out.write(buffer, 0, bufferSize);
+                bufferSize = 0;
+            }
+        }
+    }
+
+    /**
+     * Get the number of bits written so far, padding not included
+     * @return number of bits written
+     */
+    public long getBitsWritten() {
+        return bitsWritten;
+    }
+
+    /**
+     * Write the complete bytes to the output stream and flush it. The bits of a partial byte stay in the accumulator,
+     * so more codes may follow.
+     * @throws IOException exception
+     */
+    public void flushCompleteBytes() throws IOException {
+        out.write(buffer, 0, bufferSize);
+        bufferSize = 0;
+        out.flush();
+    }
+
+    /**
+     * Pad the last byte with zero bits and write all the bytes to the output stream
+     * @throws IOException exception
+     */
+    public void flush() throws IOException {
+        if (bitCount > 0) {
+            buffer[bufferSize++] = (byte) (accumulator << (8 - bitCount));
+            bitCount = 0;
+        }
+        out.write(buffer, 0, bufferSize);
+        bufferSize = 0;
+        out.flush();
+    }
+
+    /**
+     * Flush the bits and close the output stream
+     * @throws IOException exception
+     */
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
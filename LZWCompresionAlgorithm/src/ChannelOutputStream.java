@@ -0,0 +1,100 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * ChannelOutputStream collects the bytes in a large direct ByteBuffer and writes it to the file channel when it is
+ * full, so the bytes go to the file without an extra copy on the Java heap.
+ */
+public class ChannelOutputStream extends OutputStream {
+    /**
+     * Default size of the direct buffer
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    /**
+     * File channel
+     */
+    private FileChannel channel;
+    /**
+     * Direct buffer
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Constructor method
+     * @param channel file channel, written from its current position
+     * @param bufferSize size of the direct buffer
+     */
+    public ChannelOutputStream(FileChannel channel, int bufferSize) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Write one byte
+     * @param b byte, only the low 8 bits are used
+     * @throws IOException exception
+     */
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+
+    /**
+     * Write the bytes of the array
+     * @param b array
+     * @param off index of the first byte
+     * @param len number of bytes
+     * @throws IOException exception
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Write the buffer to the channel
+     * @throws IOException exception
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Write the buffer and close the channel
+     * @throws IOException exception
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write all the bytes of the buffer to the channel and clear it
+     * @throws IOException exception
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
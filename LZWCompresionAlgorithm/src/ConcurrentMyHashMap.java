@@ -0,0 +1,708 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Thread-safe HashMap built like MyHashMap. The keys are spread over segments by the top bits of their hash and every
+ * segment is an open-addressing table of its own, keys and values side by side and probed linearly, guarded by a
+ * lock that only the writers take. Readers never lock: a writer stores the value of a new slot before its key and a
+ * full table is replaced by a new copy, so a reader that sees a key also sees its value and a reader still probing
+ * the old table finds it unchanged. Removing a key leaves a tombstone instead of shifting entries back, which could
+ * move an entry past a reader probing for it, and the tombstones go when the segment is rebuilt. Null keys and values
+ * are not allowed. The iterators are weakly consistent, they never fail and see every entry at most once.
+ * @param <K> key
+ * @param <V> value
+ */
+public class ConcurrentMyHashMap<K,V> extends AbstractMap<K,V> implements ConcurrentMap<K,V> {
+    /**
+     * Number of slots of a map created without a size
+     */
+    public static final int DEFAULT_SIZE = 16;
+    /**
+     * Number of segments of a map created without a concurrency level
+     */
+    public static final int DEFAULT_CONCURRENCY = 16;
+    /**
+     * Max number of segments
+     */
+    private static final int MAX_SEGMENTS = 1 << 16;
+    /**
+     * A segment is rebuilt when its entries and tombstones would fill more than this part of the slots
+     */
+    private static final double MAX_LOAD_FACTOR = 0.5;
+    /**
+     * Key of a slot whose entry was removed, it equals no key so probes go on past it
+     */
+    private static final Object TOMBSTONE = new Object();
+    /**
+     * Segments, chosen by the top bits of the hash
+     */
+    private final Segment<K,V>[] segments;
+    /**
+     * Number of hash bits that choose the segment
+     */
+    private final int segmentBits;
+    /**
+     * Mask of the segment index
+     */
+    private final int segmentMask;
+
+    /**
+     * Constructor method with DEFAULT_SIZE slots and DEFAULT_CONCURRENCY segments
+     */
+    public ConcurrentMyHashMap() {
+        this(DEFAULT_SIZE, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Constructor method
+     * @param size initial number of slots over all the segments
+     * @param concurrency expected number of threads writing at the same time, rounded up to a power of two segments
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentMyHashMap(int size, int concurrency) {
+        if (size <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("Size and concurrency must be positive");
+        }
+        segmentBits = 32 - Integer.numberOfLeadingZeros(Math.min(concurrency, MAX_SEGMENTS) - 1);
+        segmentMask = (1 << segmentBits) - 1;
+        segments = (Segment<K,V>[]) new Segment<?, ?>[1 << segmentBits];
+        int slots = Math.max(2, Integer.highestOneBit(Math.min(size >> segmentBits, 1 << 29) - 1) << 1);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment<>(slots, segmentBits);
+        }
+    }
+
+    /**
+     * Get the value by the input key without locking
+     * @param key key
+     * @return value by the input key, null when the key is not in the map
+     */
+    @Override
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int h = hash(key);
+        return segmentFor(h).get(key, h << segmentBits);
+    }
+
+    /**
+     * Check whether the map contains the key, without locking
+     * @param key key
+     * @return whether the map contains the key
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Put new k-v pairs to the map, a key already in the map gets the new value
+     * @param key key, not null
+     * @param value value, not null
+     * @return former value of the key, null when the key was not in the map
+     */
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key, "Null keys are not allowed");
+        Objects.requireNonNull(value, "Null values are not allowed");
+        int h = hash(key);
+        return segmentFor(h).put(key, h << segmentBits, value, false);
+    }
+
+    /**
+     * Put the pair unless the key is already in the map
+     * @param key key, not null
+     * @param value value, not null
+     * @return value of the key already in the map, null when the pair was put
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Objects.requireNonNull(key, "Null keys are not allowed");
+        Objects.requireNonNull(value, "Null values are not allowed");
+        int h = hash(key);
+        return segmentFor(h).put(key, h << segmentBits, value, true);
+    }
+
+    /**
+     * Get the value of the key, computing and putting it first when the key is not in the map. The function is
+     * called at most once per key, holding the lock of the segment, so it must not change the map.
+     * @param key key, not null
+     * @param mappingFunction computes the value from the key, null to put nothing
+     * @return value of the key, null when the function gave null
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(key, "Null keys are not allowed");
+        Objects.requireNonNull(mappingFunction);
+        int h = hash(key);
+        Segment<K,V> segment = segmentFor(h);
+        V value = segment.get(key, h << segmentBits);
+        return value != null ? value : segment.computeIfAbsent(key, h << segmentBits, mappingFunction);
+    }
+
+    /**
+     * Remove the key from the map
+     * @param key key
+     * @return former value of the key, null when the key was not in the map
+     */
+    @Override
+    public V remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int h = hash(key);
+        return segmentFor(h).remove(key, h << segmentBits, null);
+    }
+
+    /**
+     * Remove the key from the map if it has the value
+     * @param key key
+     * @param value expected value
+     * @return whether the key was removed
+     */
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (key == null || value == null) {
+            return false;
+        }
+        int h = hash(key);
+        return segmentFor(h).remove(key, h << segmentBits, value) != null;
+    }
+
+    /**
+     * Set the value of the key if it is in the map
+     * @param key key
+     * @param value new value, not null
+     * @return former value of the key, null when the key was not in the map
+     */
+    @Override
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value, "Null values are not allowed");
+        if (key == null) {
+            return null;
+        }
+        int h = hash(key);
+        return segmentFor(h).replace(key, h << segmentBits, null, value);
+    }
+
+    /**
+     * Set the value of the key if it has the old value
+     * @param key key
+     * @param oldValue expected value
+     * @param newValue new value, not null
+     * @return whether the value was set
+     */
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(newValue, "Null values are not allowed");
+        if (key == null || oldValue == null) {
+            return false;
+        }
+        int h = hash(key);
+        return segmentFor(h).replace(key, h << segmentBits, oldValue, newValue) != null;
+    }
+
+    /**
+     * Get the number of entries, exact only while no writer is running
+     * @return number of entries
+     */
+    @Override
+    public int size() {
+        long count = 0;
+        for (Segment<K,V> segment : segments) {
+            count += segment.count;
+        }
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Remove every entry, one segment at a time
+     */
+    @Override
+    public void clear() {
+        for (Segment<K,V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Get the entries, backed by the map
+     * @return set of the entries
+     */
+    @Override
+    public Set<Map.Entry<K,V>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * Hash the key, the top bits choose the segment and the next ones the slot
+     * @param key key
+     * @return hash
+     */
+    private static int hash(Object key) {
+        return key.hashCode() * 0x9E3779B1;
+    }
+
+    /**
+     * Get the segment of the hash
+     * @param h hash
+     * @return segment
+     */
+    private Segment<K,V> segmentFor(int h) {
+        // with a single segment the shift by 32 is a shift by 0, the mask is 0
+        return segments[(h >>> (32 - segmentBits)) & segmentMask];
+    }
+
+    /**
+     * Part of the map with its own table and lock. The methods take the hash shifted left past the segment bits.
+     * @param <K> key
+     * @param <V> value
+     */
+    private static final class Segment<K,V> extends ReentrantLock {
+        /**
+         * Serial version
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Table, slot i keeps the key at 2*i and the value at 2*i+1, a null key marks an empty slot. A full table is
+         * never changed again, it is replaced by a new one.
+         */
+        private volatile AtomicReferenceArray<Object> table;
+        /**
+         * Number of entries
+         */
+        private volatile int count;
+        /**
+         * Number of slots holding an entry or a tombstone
+         */
+        private int used;
+        /**
+         * Number of used slots at which the table is rebuilt
+         */
+        private int threshold;
+        /**
+         * Number of hash bits that choose the segment, shifted out of the hash of a key
+         */
+        private final int segmentBits;
+
+        /**
+         * Constructor method
+         * @param slots number of slots, a power of two
+         * @param segmentBits number of hash bits that choose the segment
+         */
+        Segment(int slots, int segmentBits) {
+            this.segmentBits = segmentBits;
+            allocate(slots);
+        }
+
+        /**
+         * Get the value of the key without locking
+         * @param key key
+         * @param h shifted hash
+         * @return value of the key, null when the key is not in the segment
+         */
+        @SuppressWarnings("unchecked")
+        V get(Object key, int h) {
+            AtomicReferenceArray<Object> tab = table;
+            int mask = (tab.length() >> 1) - 1;
+            int index = h >>> Integer.numberOfLeadingZeros(mask);
+            while (true) {
+                Object k = tab.getAcquire(index << 1);
+                if (k == null) {
+                    return null;
+                }
+                if (k.equals(key)) {
+                    return (V) tab.getAcquire((index << 1) + 1);
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        /**
+         * Put the pair
+         * @param key key
+         * @param h shifted hash
+         * @param value value
+         * @param onlyIfAbsent whether a key already in the segment keeps its value
+         * @return former value of the key, null when the key was not in the segment
+         */
+        @SuppressWarnings("unchecked")
+        V put(K key, int h, V value, boolean onlyIfAbsent) {
+            lock();
+            try {
+                int index = find(key, h);
+                AtomicReferenceArray<Object> tab = table;
+                if (tab.getPlain(index << 1) != null) {
+                    V former = (V) tab.getPlain((index << 1) + 1);
+                    if (!onlyIfAbsent) {
+                        tab.setRelease((index << 1) + 1, value);
+                    }
+                    return former;
+                }
+                insert(key, h, index, value);
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Get the value of the key, computing and putting it first when the key is not in the segment
+         * @param key key
+         * @param h shifted hash
+         * @param mappingFunction computes the value from the key
+         * @return value of the key, null when the function gave null
+         */
+        @SuppressWarnings("unchecked")
+        V computeIfAbsent(K key, int h, Function<? super K, ? extends V> mappingFunction) {
+            lock();
+            try {
+                int index = find(key, h);
+                if (table.getPlain(index << 1) != null) {
+                    return (V) table.getPlain((index << 1) + 1);
+                }
+                V value = mappingFunction.apply(key);
+                if (value != null) {
+                    insert(key, h, index, value);
+                }
+                return value;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Remove the key, leaving a tombstone
+         * @param key key
+         * @param h shifted hash
+         * @param expected value the key must have, null for any
+         * @return former value of the key, null when nothing was removed
+         */
+        @SuppressWarnings("unchecked")
+        V remove(Object key, int h, Object expected) {
+            lock();
+            try {
+                int index = find(key, h);
+                AtomicReferenceArray<Object> tab = table;
+                V former = (V) tab.getPlain((index << 1) + 1);
+                if (tab.getPlain(index << 1) == null || (expected != null && !expected.equals(former))) {
+                    return null;
+                }
+                tab.setRelease(index << 1, TOMBSTONE);
+                tab.setRelease((index << 1) + 1, null);
+                count--;
+                return former;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Set the value of the key if it is in the segment
+         * @param key key
+         * @param h shifted hash
+         * @param expected value the key must have, null for any
+         * @param value new value
+         * @return former value of the key, null when nothing was set
+         */
+        @SuppressWarnings("unchecked")
+        V replace(Object key, int h, Object expected, V value) {
+            lock();
+            try {
+                int index = find(key, h);
+                AtomicReferenceArray<Object> tab = table;
+                V former = (V) tab.getPlain((index << 1) + 1);
+                if (tab.getPlain(index << 1) == null || (expected != null && !expected.equals(former))) {
+                    return null;
+                }
+                tab.setRelease((index << 1) + 1, value);
+                return former;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Remove every entry
+         */
+        void clear() {
+            lock();
+            try {
+                allocate(table.length() >> 1);
+                count = 0;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Find the slot of the key, or the empty slot where the probe for it stops, holding the lock
+         * @param key key
+         * @param h shifted hash
+         * @return slot index
+         */
+        private int find(Object key, int h) {
+            AtomicReferenceArray<Object> tab = table;
+            int mask = (tab.length() >> 1) - 1;
+            int index = h >>> Integer.numberOfLeadingZeros(mask);
+            while (true) {
+                Object k = tab.getPlain(index << 1);
+                if (k == null || k.equals(key)) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        /**
+         * Put a new pair in the empty slot where the probe for the key stopped, rebuilding the table first when it
+         * is full. The value is stored before the key for the readers.
+         * @param key key
+         * @param h shifted hash
+         * @param index empty slot
+         * @param value value
+         */
+        private void insert(Object key, int h, int index, Object value) {
+            if (used + 1 > threshold) {
+                // double the table unless the tombstones alone filled it
+                int slots = table.length() >> 1;
+                rebuild(count + 1 > (int) (slots * MAX_LOAD_FACTOR) ? slots << 1 : slots);
+                index = find(key, h);
+            }
+            AtomicReferenceArray<Object> tab = table;
+            tab.setRelease((index << 1) + 1, value);
+            tab.setRelease(index << 1, key);
+            used++;
+            count++;
+        }
+
+        /**
+         * Copy the entries to a new table without the tombstones and publish it
+         * @param slots number of slots of the new table
+         */
+        private void rebuild(int slots) {
+            AtomicReferenceArray<Object> oldTable = table;
+            AtomicReferenceArray<Object> tab = new AtomicReferenceArray<>(slots << 1);
+            int mask = slots - 1;
+            int shift = Integer.numberOfLeadingZeros(mask);
+            for (int i = 0; i < oldTable.length(); i += 2) {
+                Object k = oldTable.getPlain(i);
+                if (k != null && k != TOMBSTONE) {
+                    int index = (hash(k) << segmentBits) >>> shift;
+                    while (tab.getPlain(index << 1) != null) {
+                        index = (index + 1) & mask;
+                    }
+                    tab.setPlain(index << 1, k);
+                    tab.setPlain((index << 1) + 1, oldTable.getPlain(i + 1));
+                }
+            }
+            used = count;
+            threshold = (int) (slots * MAX_LOAD_FACTOR);
+            // the volatile write publishes the filled table
+            table = tab;
+        }
+
+        /**
+         * Allocate an empty table and publish it
+         * @param slots number of slots, a power of two
+         */
+        private void allocate(int slots) {
+            used = 0;
+            threshold = (int) (slots * MAX_LOAD_FACTOR);
+            table = new AtomicReferenceArray<>(slots << 1);
+        }
+    }
+
+    /**
+     * Entry given by the entry set, setting its value puts it in the map
+     */
+    private final class TableEntry extends AbstractMap.SimpleEntry<K,V> {
+        /**
+         * Serial version
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor method
+         * @param key key
+         * @param value value
+         */
+        TableEntry(K key, V value) {
+            super(key, value);
+        }
+
+        /**
+         * Set the value of the entry and of its key in the map
+         * @param value value, not null
+         * @return former value of the entry
+         */
+        @Override
+        public V setValue(V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    /**
+     * Iterator over the segments in order, each read from the table it had when the iterator got to it
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        /**
+         * Index of the next segment
+         */
+        private int segmentIndex;
+        /**
+         * Table of the current segment, null before the first one
+         */
+        private AtomicReferenceArray<Object> tab;
+        /**
+         * Next slot of the table
+         */
+        private int index;
+        /**
+         * Next entry, null at the end
+         */
+        private Map.Entry<K,V> next;
+        /**
+         * Key of the last entry, null when there is none to remove
+         */
+        private K lastKey;
+
+        /**
+         * Constructor method
+         */
+        EntryIterator() {
+            advance();
+        }
+
+        /**
+         * Check whether there is a next entry
+         * @return whether there is a next entry
+         */
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        /**
+         * Get the next entry
+         * @return next entry
+         */
+        @Override
+        public Map.Entry<K,V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K,V> entry = next;
+            lastKey = entry.getKey();
+            advance();
+            return entry;
+        }
+
+        /**
+         * Remove the key of the last entry from the map
+         */
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentMyHashMap.this.remove(lastKey);
+            lastKey = null;
+        }
+
+        /**
+         * Find the next entry, a key whose value was removed meanwhile is skipped
+         */
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (true) {
+                while (tab != null && index < tab.length() >> 1) {
+                    Object k = tab.getAcquire(index << 1);
+                    Object v = tab.getAcquire((index << 1) + 1);
+                    index++;
+                    if (k != null && k != TOMBSTONE && v != null) {
+                        next = new TableEntry((K) k, (V) v);
+                        return;
+                    }
+                }
+                if (segmentIndex == segments.length) {
+                    return;
+                }
+                tab = segments[segmentIndex++].table;
+                index = 0;
+            }
+        }
+    }
+
+    /**
+     * Set view of the entries
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        /**
+         * Get the number of entries
+         * @return number of entries
+         */
+        @Override
+        public int size() {
+            return ConcurrentMyHashMap.this.size();
+        }
+
+        /**
+         * Check whether the map contains the key of the entry with the same value
+         * @param o entry
+         * @return whether the map contains the entry
+         */
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            V value = get(e.getKey());
+            return value != null && value.equals(e.getValue());
+        }
+
+        /**
+         * Remove the entry from the map
+         * @param o entry
+         * @return whether the entry was in the map
+         */
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return ConcurrentMyHashMap.this.remove(e.getKey(), e.getValue());
+        }
+
+        /**
+         * Remove every entry of the map
+         */
+        @Override
+        public void clear() {
+            ConcurrentMyHashMap.this.clear();
+        }
+
+        /**
+         * Get a weakly consistent iterator over the entries
+         * @return iterator
+         */
+        @Override
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+}
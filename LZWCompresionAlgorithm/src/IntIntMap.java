@@ -0,0 +1,234 @@
+import java.util.Arrays;
+
+/**
+ * HashMap from int to int without boxing, built like MyHashMap. The keys and the values are kept side by side in one
+ * int array, probed linearly, and the table doubles when it gets more than half full. Key 0 marks an empty slot, so
+ * its value is kept beside the table. Putting a key that is already in the map replaces its value.
+ */
+public class IntIntMap {
+    /**
+     * Number of slots of a map created without a size
+     */
+    public static final int DEFAULT_SIZE = 16;
+    /**
+     * The table doubles when the entries would fill more than this part of the slots
+     */
+    private static final double MAX_LOAD_FACTOR = 0.5;
+    /**
+     * Key of an empty slot
+     */
+    private static final int FREE_KEY = 0;
+    /**
+     * Table, slot i keeps the key at 2*i and the value at 2*i+1
+     */
+    private int[] table;
+    /**
+     * Number of slots of the table
+     */
+    private int slots;
+    /**
+     * Shift used by the hash function
+     */
+    private int shift;
+    /**
+     * Number of entries, the free key included
+     */
+    private int count;
+    /**
+     * Number of entries at which the table doubles
+     */
+    private int threshold;
+    /**
+     * Whether the free key is in the map
+     */
+    private boolean hasFreeKey;
+    /**
+     * Value of the free key
+     */
+    private int freeKeyValue;
+
+    /**
+     * Constructor method with DEFAULT_SIZE slots
+     */
+    public IntIntMap() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructor method
+     * @param size initial number of slots, rounded up to a power of two
+     */
+    public IntIntMap(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        allocate(Math.max(2, Integer.highestOneBit(Math.min(size, 1 << 29) - 1) << 1));
+    }
+
+    /**
+     * Put the pair, a key already in the map gets the new value
+     * @param key key
+     * @param value value
+     */
+    public void put(int key, int value) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                count++;
+            }
+            freeKeyValue = value;
+            return;
+        }
+        int index = find(key);
+        if (table[index << 1] == FREE_KEY) {
+            if (count + 1 > threshold) {
+                resize(slots << 1);
+                index = find(key);
+            }
+            table[index << 1] = key;
+            count++;
+        }
+        table[(index << 1) + 1] = value;
+    }
+
+    /**
+     * Put the pair unless the key is already in the map
+     * @param key key
+     * @param value value
+     * @return whether the pair was put
+     */
+    public boolean putIfAbsent(int key, int value) {
+        if (key == FREE_KEY) {
+            if (hasFreeKey) {
+                return false;
+            }
+            put(key, value);
+            return true;
+        }
+        int index = find(key);
+        if (table[index << 1] != FREE_KEY) {
+            return false;
+        }
+        if (count + 1 > threshold) {
+            resize(slots << 1);
+            index = find(key);
+        }
+        table[index << 1] = key;
+        table[(index << 1) + 1] = value;
+        count++;
+        return true;
+    }
+
+    /**
+     * Get the value of the key
+     * @param key key
+     * @param defaultValue value returned when the key is not in the map
+     * @return value of the key or the default value
+     */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : defaultValue;
+        }
+        int mask = slots - 1;
+        int index = (key * 0x9E3779B1) >>> shift;
+        while (true) {
+            int k = table[index << 1];
+            if (k == key) {
+                return table[(index << 1) + 1];
+            }
+            if (k == FREE_KEY) {
+                return defaultValue;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Check whether the map contains the key
+     * @param key key
+     * @return whether the map contains the key
+     */
+    public boolean containsKey(int key) {
+        return key == FREE_KEY ? hasFreeKey : table[find(key) << 1] != FREE_KEY;
+    }
+
+    /**
+     * Get the number of entries
+     * @return number of entries
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Remove every entry, the table keeps its size
+     */
+    public void clear() {
+        Arrays.fill(table, FREE_KEY);
+        hasFreeKey = false;
+        count = 0;
+    }
+
+    /**
+     * Put every pair of the other map. An empty map with as many slots as the other one copies its table as is.
+     * @param other other map, only read
+     */
+    public void putAll(IntIntMap other) {
+        if (count == 0 && slots == other.slots) {
+            System.arraycopy(other.table, 0, table, 0, table.length);
+            count = other.count;
+            hasFreeKey = other.hasFreeKey;
+            freeKeyValue = other.freeKeyValue;
+            return;
+        }
+        if (other.hasFreeKey) {
+            put(FREE_KEY, other.freeKeyValue);
+        }
+        for (int i = 0; i < other.table.length; i += 2) {
+            if (other.table[i] != FREE_KEY) {
+                put(other.table[i], other.table[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Find the slot of the key, or the empty slot where the probe for it stops
+     * @param key key, not the free key
+     * @return slot index
+     */
+    private int find(int key) {
+        int mask = slots - 1;
+        int index = (key * 0x9E3779B1) >>> shift;
+        while (table[index << 1] != key && table[index << 1] != FREE_KEY) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Move every entry to a new table
+     * @param newSlots number of slots of the new table
+     */
+    private void resize(int newSlots) {
+        int[] oldTable = table;
+        allocate(newSlots);
+        for (int i = 0; i < oldTable.length; i += 2) {
+            if (oldTable[i] != FREE_KEY) {
+                int index = find(oldTable[i]);
+                table[index << 1] = oldTable[i];
+                table[(index << 1) + 1] = oldTable[i + 1];
+            }
+        }
+    }
+
+    /**
+     * Allocate an empty table
+     * @param newSlots number of slots, a power of two
+     */
+    private void allocate(int newSlots) {
+        slots = newSlots;
+        shift = 32 - Integer.numberOfTrailingZeros(newSlots);
+        table = new int[newSlots << 1];
+        threshold = (int) (newSlots * MAX_LOAD_FACTOR);
+    }
+}
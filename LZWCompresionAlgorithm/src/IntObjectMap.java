@@ -0,0 +1,178 @@
+import java.util.Arrays;
+
+/**
+ * HashMap from int to object without boxing the keys, built like MyHashMap. The keys and the values are kept in
+ * parallel int and object arrays, probed linearly, and the tables double when they get more than half full. Key 0
+ * marks an empty slot, so its value is kept beside the tables. Putting a key that is already in the map replaces
+ * its value.
+ * @param <V> value
+ */
+public class IntObjectMap<V> {
+    /**
+     * Number of slots of a map created without a size
+     */
+    public static final int DEFAULT_SIZE = 16;
+    /**
+     * The tables double when the entries would fill more than this part of the slots
+     */
+    private static final double MAX_LOAD_FACTOR = 0.5;
+    /**
+     * Key of an empty slot
+     */
+    private static final int FREE_KEY = 0;
+    /**
+     * Key of every slot
+     */
+    private int[] keys;
+    /**
+     * Value of every slot
+     */
+    private Object[] values;
+    /**
+     * Shift used by the hash function
+     */
+    private int shift;
+    /**
+     * Number of entries, the free key included
+     */
+    private int count;
+    /**
+     * Number of entries at which the tables double
+     */
+    private int threshold;
+    /**
+     * Whether the free key is in the map
+     */
+    private boolean hasFreeKey;
+    /**
+     * Value of the free key
+     */
+    private V freeKeyValue;
+
+    /**
+     * Constructor method with DEFAULT_SIZE slots
+     */
+    public IntObjectMap() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructor method
+     * @param size initial number of slots, rounded up to a power of two
+     */
+    public IntObjectMap(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        allocate(Math.max(2, Integer.highestOneBit(Math.min(size, 1 << 30) - 1) << 1));
+    }
+
+    /**
+     * Put the pair, a key already in the map gets the new value
+     * @param key key
+     * @param value value
+     */
+    public void put(int key, V value) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                count++;
+            }
+            freeKeyValue = value;
+            return;
+        }
+        int index = find(key);
+        if (keys[index] == FREE_KEY) {
+            if (count + 1 > threshold) {
+                resize(keys.length << 1);
+                index = find(key);
+            }
+            keys[index] = key;
+            count++;
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Get the value of the key
+     * @param key key
+     * @return value of the key, null when the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : null;
+        }
+        return (V) values[find(key)];
+    }
+
+    /**
+     * Check whether the map contains the key
+     * @param key key
+     * @return whether the map contains the key
+     */
+    public boolean containsKey(int key) {
+        return key == FREE_KEY ? hasFreeKey : keys[find(key)] != FREE_KEY;
+    }
+
+    /**
+     * Get the number of entries
+     * @return number of entries
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Remove every entry, the tables keep their size
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        Arrays.fill(values, null);
+        hasFreeKey = false;
+        freeKeyValue = null;
+        count = 0;
+    }
+
+    /**
+     * Find the slot of the key, or the empty slot where the probe for it stops
+     * @param key key, not the free key
+     * @return slot index
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int index = (key * 0x9E3779B1) >>> shift;
+        while (keys[index] != key && keys[index] != FREE_KEY) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Move every entry to new tables
+     * @param newSlots number of slots of the new tables
+     */
+    private void resize(int newSlots) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newSlots);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int index = find(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Allocate empty tables
+     * @param newSlots number of slots, a power of two
+     */
+    private void allocate(int newSlots) {
+        shift = 32 - Integer.numberOfTrailingZeros(newSlots);
+        keys = new int[newSlots];
+        values = new Object[newSlots];
+        threshold = (int) (newSlots * MAX_LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,302 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * LZWArchive packs many files into one archive so a batch job starts the JVM once. Every entry is compressed as one
+ * block on its own task, with dictionaries sized by its length so that many small entries at once stay small, and
+ * the entries are written in the order they finish. A central directory at the end of the
+ * archive keeps the name, the length and the offset of every entry, so the listing reads only the directory. The
+ * layout is the format bytes, the codec options, the entries, the directory and the offset of the directory in the
+ * last 8 bytes. The directory is the number of entries and then the name, the original length, the offset and the
+ * compressed length of every entry.
+ */
+public class LZWArchive {
+    /**
+     * Format of an archive
+     */
+    static final int FORMAT_ARCHIVE = 'A';
+    /**
+     * Max number of original bytes of an entry, an entry is a single block
+     */
+    public static final int MAX_ENTRY_LENGTH = Integer.MAX_VALUE - 8;
+    /**
+     * Max number of entries compressed or extracted at once
+     */
+    private int concurrency;
+
+    /**
+     * Constructor method
+     * @param concurrency max number of entries compressed or extracted at once
+     */
+    public LZWArchive(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive");
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Compress the files into a new archive. At most concurrency compressed entries wait in memory for the writer.
+     * @param archiveFile archive file
+     * @param names name of every entry
+     * @param files file of every entry
+     * @param options codec options, the legacy format has no room in the header so it is not allowed
+     * @throws IOException exception
+     */
+    public void create(String archiveFile, List<String> names, List<Path> files, LZWOptions options)
+            throws IOException {
+        if (options.isLegacy()) {
+            throw new IllegalArgumentException("The archive format needs a header");
+        }
+        if (names.size() != files.size()) {
+            throw new IllegalArgumentException("Every entry needs a name and a file");
+        }
+        ExecutorService executor = newExecutor(concurrency);
+        Semaphore permits = new Semaphore(concurrency);
+        ExecutorCompletionService<Compressed> service = new ExecutorCompletionService<>(executor);
+        List<LZWArchiveEntry> entries = new ArrayList<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(archiveFile)))) {
+            LZWCompression.writeFormat(out, FORMAT_ARCHIVE);
+            options.writeHeader(out);
+            long position = 4 + options.getHeaderSize();
+            for (int i = 0; i < files.size(); i++) {
+                Path file = files.get(i);
+                int index = i;
+                // the permit is given back once the entry is written
+                service.submit(() -> {
+                    permits.acquire();
+                    if (Files.size(file) > MAX_ENTRY_LENGTH) {
+                        throw new IOException("Entry too large " + file);
+                    }
+                    byte[] data = Files.readAllBytes(file);
+                    return new Compressed(index, data.length,
+                            LZWBlockCompressor.compressBlock(data, data.length, options));
+                });
+            }
+            for (int i = 0; i < files.size(); i++) {
+                Compressed compressed = get(service.take());
+                out.write(compressed.data);
+                entries.add(new LZWArchiveEntry(names.get(compressed.index), compressed.length, position,
+                        compressed.data.length));
+                position += compressed.data.length;
+                permits.release();
+            }
+            // write the directory and then its offset
+            out.writeInt(entries.size());
+            for (LZWArchiveEntry entry : entries) {
+                out.writeUTF(entry.getName());
+                out.writeInt(entry.getLength());
+                out.writeLong(entry.getOffset());
+                out.writeInt(entry.getCompressedLength());
+            }
+            out.writeLong(position);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing the archive");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read the central directory of the archive.
+     * @param archiveFile archive file
+     * @return entries in the order they are stored
+     * @throws IOException exception
+     */
+    public static List<LZWArchiveEntry> list(String archiveFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(archiveFile), StandardOpenOption.READ)) {
+            return readDirectory(channel);
+        }
+    }
+
+    /**
+     * Extract every entry of the archive under the output directory.
+     * @param archiveFile archive file
+     * @param outputDirectory output directory
+     * @param presetDictionary dictionary named by the header, null for none
+     * @throws IOException exception
+     */
+    public void extract(String archiveFile, String outputDirectory, LZWPresetDictionary presetDictionary)
+            throws IOException {
+        Path root = Paths.get(outputDirectory).toAbsolutePath().normalize();
+        ExecutorService executor = newExecutor(concurrency);
+        Semaphore permits = new Semaphore(concurrency);
+        try (FileChannel channel = FileChannel.open(Paths.get(archiveFile), StandardOpenOption.READ)) {
+            LZWOptions options = readOptions(channel, presetDictionary);
+            List<LZWArchiveEntry> entries = readDirectory(channel);
+            List<Future<Void>> tasks = new ArrayList<>();
+            for (LZWArchiveEntry entry : entries) {
+                Path file = root.resolve(entry.getName()).normalize();
+                // an entry must not escape the output directory
+                if (!file.startsWith(root) || file.equals(root)) {
+                    throw new IOException("Invalid entry name " + entry.getName());
+                }
+                tasks.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        byte[] compressed = LZWBlockCompressor.readFully(channel, entry.getCompressedLength(),
+                                entry.getOffset());
+                        byte[] data = LZWBlockCompressor.decompressBlock(compressed, entry.getLength(), options);
+                        Files.createDirectories(file.getParent());
+                        Files.write(file, data);
+                        return null;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (Future<Void> task : tasks) {
+                get(task);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting the archive");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read the codec options after the format bytes.
+     * @param channel archive channel
+     * @param presetDictionary dictionary named by the header, null for none
+     * @return codec options
+     * @throws IOException exception
+     */
+    private static LZWOptions readOptions(FileChannel channel, LZWPresetDictionary presetDictionary)
+            throws IOException {
+        // format bytes, flags and width, then the dictionary id and version if any
+        byte[] header = LZWBlockCompressor.readFully(channel, (int) Math.min(channel.size(), 4 + 2 + 4 + 4), 0);
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(header);
+        if (LZWCompression.readFormat(inputStream) != FORMAT_ARCHIVE) {
+            throw new IOException("Not an LZW archive");
+        }
+        return LZWOptions.readHeader(new DataInputStream(inputStream), presetDictionary);
+    }
+
+    /**
+     * Read the central directory from the offset in the last 8 bytes.
+     * @param channel archive channel
+     * @return entries in the order they are stored
+     * @throws IOException exception
+     */
+    private static List<LZWArchiveEntry> readDirectory(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < 4 + 2 + 4 + 8) {
+            throw new IOException("Not an LZW archive");
+        }
+        long directoryOffset = new DataInputStream(new ByteArrayInputStream(
+                LZWBlockCompressor.readFully(channel, 8, size - 8))).readLong();
+        if (directoryOffset < 4 || directoryOffset > size - 8 - 4 || size - 8 - directoryOffset > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt archive directory");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(LZWBlockCompressor.readFully(channel,
+                (int) (size - 8 - directoryOffset), directoryOffset)));
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt archive directory");
+        }
+        List<LZWArchiveEntry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            int length = in.readInt();
+            long offset = in.readLong();
+            int compressedLength = in.readInt();
+            if (length < 0 || compressedLength < 0 || offset < 4 || offset + compressedLength > directoryOffset) {
+                throw new IOException("Corrupt archive directory");
+            }
+            entries.add(new LZWArchiveEntry(name, length, offset, compressedLength));
+        }
+        return entries;
+    }
+
+    /**
+     * Create an executor with a virtual thread per task when the runtime has them, or else a fixed pool of threads.
+     * The concurrency is capped by semaphores in both cases.
+     * @param concurrency max number of tasks at once
+     * @return executor
+     */
+    private static ExecutorService newExecutor(int concurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(concurrency);
+        }
+    }
+
+    /**
+     * Wait for the task and rethrow the IOException of the task.
+     * @param task task
+     * @param <T> result type
+     * @return result of the task
+     * @throws IOException exception
+     * @throws InterruptedException exception
+     */
+    private static <T> T get(Future<T> task) throws IOException, InterruptedException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Compressed entry waiting for the writer
+     */
+    private static class Compressed {
+        /**
+         * Index of the entry in the file list
+         */
+        private int index;
+        /**
+         * Number of original bytes
+         */
+        private int length;
+        /**
+         * Method byte followed by the compressed bytes
+         */
+        private byte[] data;
+
+        /**
+         * Constructor method
+         * @param index index of the entry in the file list
+         * @param length number of original bytes
+         * @param data method byte followed by the compressed bytes
+         */
+        private Compressed(int index, int length, byte[] data) {
+            this.index = index;
+            this.length = length;
+            this.data = data;
+        }
+    }
+}
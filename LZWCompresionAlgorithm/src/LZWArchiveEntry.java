@@ -0,0 +1,68 @@
+/**
+ * Entry of the central directory of an archive. The compressed bytes of the entry are one block, see
+ * LZWBlockCompressor.compressBlock.
+ */
+public class LZWArchiveEntry {
+    /**
+     * Name of the entry, the path relative to the archive root with '/' separators
+     */
+    private String name;
+    /**
+     * Number of original bytes
+     */
+    private int length;
+    /**
+     * File offset of the compressed bytes
+     */
+    private long offset;
+    /**
+     * Number of compressed bytes
+     */
+    private int compressedLength;
+
+    /**
+     * Constructor method
+     * @param name name of the entry
+     * @param length number of original bytes
+     * @param offset file offset of the compressed bytes
+     * @param compressedLength number of compressed bytes
+     */
+    public LZWArchiveEntry(String name, int length, long offset, int compressedLength) {
+        this.name = name;
+        this.length = length;
+        this.offset = offset;
+        this.compressedLength = compressedLength;
+    }
+
+    /**
+     * Get the name of the entry
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of original bytes
+     * @return original length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get the file offset of the compressed bytes
+     * @return offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get the number of compressed bytes
+     * @return compressed length
+     */
+    public int getCompressedLength() {
+        return compressedLength;
+    }
+}
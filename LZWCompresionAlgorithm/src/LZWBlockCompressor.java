@@ -0,0 +1,361 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * LZWBlockCompressor cuts the input into blocks of a fixed size and compresses them independently on a ForkJoinPool.
+ * The blocks are written in order after a header holding the offset of every block, see LZWBlockIndex, and are
+ * decompressed in parallel the same way. Only a few blocks per thread are in memory at any time. Every block starts
+ * with a method byte: LZW codes, or the original bytes stored as they are when LZW would make the block bigger. The
+ * high bits of the method byte give the transform applied before LZW, see LZWTransform, and a transformed block
+ * keeps the number of transformed bytes in 4 bytes after the method byte.
+ */
+public class LZWBlockCompressor {
+    /**
+     * Default number of original bytes in a block
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    /**
+     * Method byte of a block of LZW codes
+     */
+    static final int METHOD_LZW = 0;
+    /**
+     * Method byte of a block stored as it is
+     */
+    static final int METHOD_STORED = 1;
+    /**
+     * Shift of the transform in the method byte
+     */
+    private static final int TRANSFORM_SHIFT = 4;
+    /**
+     * Number of bytes at the start of a block compressed by each transform to choose one
+     */
+    private static final int TRIAL_BYTES = 1 << 16;
+    /**
+     * A transform is picked only when its trial is smaller than this part of the trial without a transform, since
+     * the trial is too short to be exact
+     */
+    private static final double TRIAL_MARGIN = 0.95;
+    /**
+     * Number of bytes encoded between two checks of the compressed size
+     */
+    private static final int CHECK_BYTES = 1 << 14;
+    /**
+     * Number of blocks in flight per thread
+     */
+    private static final int BLOCKS_PER_THREAD = 2;
+    /**
+     * Number of threads
+     */
+    private int parallelism;
+
+    /**
+     * Constructor method
+     * @param parallelism number of threads
+     */
+    public LZWBlockCompressor(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Compress the file in blocks.
+     * @param inputFile input file
+     * @param outputFile output file
+     * @param options codec options, the legacy format has no room in the header so it is not allowed
+     * @param blockSize number of original bytes in a block
+     * @throws IOException exception
+     */
+    public void compress(String inputFile, String outputFile, LZWOptions options, int blockSize) throws IOException {
+        if (options.isLegacy()) {
+            throw new IllegalArgumentException("The block format needs a header");
+        }
+        File file = new File(inputFile);
+        LZWBlockIndex index = new LZWBlockIndex(options, blockSize, file.length());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (InputStream inputStream = new FileInputStream(file);
+             RandomAccessFile output = new RandomAccessFile(outputFile, "rw")) {
+            output.setLength(0);
+            FileChannel channel = output.getChannel();
+            long position = index.getHeaderSize();
+            ArrayDeque<ForkJoinTask<byte[]>> tasks = new ArrayDeque<>();
+            int next = 0;
+            int written = 0;
+            while (written < index.getBlockCount()) {
+                // keep every thread busy, then write the oldest block
+                while (next < index.getBlockCount() && tasks.size() < parallelism * BLOCKS_PER_THREAD) {
+                    byte[] data = inputStream.readNBytes(index.getBlockLength(next));
+                    if (data.length != index.getBlockLength(next)) {
+                        throw new IOException("File changed while compressing");
+                    }
+                    tasks.add(pool.submit(() -> compressBlock(data, data.length, options)));
+                    next++;
+                }
+                byte[] compressed = join(tasks.poll());
+                index.setOffset(written, position);
+                writeFully(channel, compressed, position);
+                position += compressed.length;
+                written++;
+            }
+            index.setOffset(index.getBlockCount(), position);
+            // write the header last, now that every offset is known
+            ByteArrayOutputStream header = new ByteArrayOutputStream(index.getHeaderSize());
+            index.write(new DataOutputStream(header));
+            writeFully(channel, header.toByteArray(), 0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Decompress a file written by compress.
+     * @param inputFile input file
+     * @param outputFile output file
+     * @param presetDictionary dictionary named by the header, null for none
+     * @throws IOException exception
+     */
+    public void decompress(String inputFile, String outputFile, LZWPresetDictionary presetDictionary)
+            throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (BufferedInputStream bufferedStream = new BufferedInputStream(new FileInputStream(inputFile));
+             OutputStream outputStream = new FileOutputStream(outputFile)) {
+            if (LZWCompression.readFormat(bufferedStream) != LZWCompression.FORMAT_BLOCK) {
+                throw new IOException("Not an LZW block file");
+            }
+            DataInputStream inputStream = new DataInputStream(bufferedStream);
+            LZWBlockIndex index = LZWBlockIndex.read(inputStream, presetDictionary);
+            ArrayDeque<ForkJoinTask<byte[]>> tasks = new ArrayDeque<>();
+            int next = 0;
+            int written = 0;
+            while (written < index.getBlockCount()) {
+                while (next < index.getBlockCount() && tasks.size() < parallelism * BLOCKS_PER_THREAD) {
+                    // the blocks are stored in order right after the header
+                    byte[] data = inputStream.readNBytes(index.getCompressedLength(next));
+                    if (data.length != index.getCompressedLength(next)) {
+                        throw new EOFException("Truncated block " + next);
+                    }
+                    int length = index.getBlockLength(next);
+                    tasks.add(pool.submit(() -> decompressBlock(data, length, index.getOptions())));
+                    next++;
+                }
+                outputStream.write(join(tasks.poll()));
+                written++;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Compress one block with a fresh dictionary sized by the block length. The block is stored as it is if the
+     * codes take more room than the original bytes, and the encoder gives up as soon as that is certain. With
+     * preprocessing the transform that compresses the start of the block best is applied first.
+     * @param data original bytes
+     * @param length number of original bytes
+     * @param options codec options
+     * @return method byte followed by the compressed bytes
+     */
+    public static byte[] compressBlock(byte[] data, int length, LZWOptions options) {
+        try {
+            int transform = options.isPreprocessing() ? chooseTransform(data, length, options) : LZWTransform.NONE;
+            byte[] input = data;
+            int inputLength = length;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 2 + 16);
+            bytes.write(METHOD_LZW | (transform << TRANSFORM_SHIFT));
+            if (transform != LZWTransform.NONE) {
+                input = LZWTransform.forward(transform, data, length);
+                inputLength = input.length;
+                new DataOutputStream(bytes).writeInt(inputLength);
+            }
+            LZWCodeWriter codeWriter = options.newCodeWriter(bytes);
+            LZWEncoder encoder = new LZWEncoder(codeWriter, options, inputLength);
+            try {
+                for (int offset = 0; offset < inputLength; offset += CHECK_BYTES) {
+                    encoder.write(input, offset, Math.min(CHECK_BYTES, inputLength - offset));
+                    if (codeWriter.getBitsWritten() >= (long) length * 8) {
+                        return storeBlock(data, length);
+                    }
+                }
+                encoder.finish();
+            } finally {
+                encoder.release();
+            }
+            codeWriter.flush();
+            if (bytes.size() > length) {
+                return storeBlock(data, length);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Compress the start of the block with every transform and pick the smallest result.
+     * @param data original bytes
+     * @param length number of original bytes
+     * @param options codec options
+     * @return transform
+     * @throws IOException exception
+     */
+    private static int chooseTransform(byte[] data, int length, LZWOptions options) throws IOException {
+        int trialLength = Math.min(length, TRIAL_BYTES);
+        int best = LZWTransform.NONE;
+        long bestBits = (long) (countBits(data, trialLength, options) * TRIAL_MARGIN);
+        for (int transform : new int[] {LZWTransform.RLE, LZWTransform.BWT_MTF}) {
+            byte[] transformed = LZWTransform.forward(transform, data, trialLength);
+            long bits = countBits(transformed, transformed.length, options);
+            if (bits < bestBits) {
+                best = transform;
+                bestBits = bits;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Count the bits of the codes of the bytes, nothing is kept
+     * @param data bytes
+     * @param length number of bytes
+     * @param options codec options
+     * @return number of bits
+     * @throws IOException exception
+     */
+    private static long countBits(byte[] data, int length, LZWOptions options) throws IOException {
+        LZWCodeWriter codeWriter = options.newCodeWriter(OutputStream.nullOutputStream());
+        LZWEncoder encoder = new LZWEncoder(codeWriter, options, length);
+        try {
+            encoder.write(data, 0, length);
+            encoder.finish();
+        } finally {
+            encoder.release();
+        }
+        codeWriter.flush();
+        return codeWriter.getBitsWritten();
+    }
+
+    /**
+     * Store one block as it is.
+     * @param data original bytes
+     * @param length number of original bytes
+     * @return method byte followed by the original bytes
+     */
+    private static byte[] storeBlock(byte[] data, int length) {
+        byte[] block = new byte[length + 1];
+        block[0] = METHOD_STORED;
+        System.arraycopy(data, 0, block, 1, length);
+        return block;
+    }
+
+    /**
+     * Decompress one block written by compressBlock.
+     * @param data method byte followed by the compressed bytes
+     * @param length number of original bytes
+     * @param options codec options
+     * @return original bytes
+     */
+    public static byte[] decompressBlock(byte[] data, int length, LZWOptions options) {
+        try {
+            if (data.length == 0) {
+                throw new IOException("Empty block");
+            }
+            if (data[0] == METHOD_STORED) {
+                if (data.length != length + 1) {
+                    throw new IOException("Corrupt stored block");
+                }
+                return Arrays.copyOfRange(data, 1, data.length);
+            }
+            int transform = (data[0] & 0xFF) >>> TRANSFORM_SHIFT;
+            if ((data[0] & ((1 << TRANSFORM_SHIFT) - 1)) != METHOD_LZW) {
+                throw new IOException("Unknown block method " + data[0]);
+            }
+            int start = 1;
+            int outputLength = length;
+            if (transform != LZWTransform.NONE) {
+                if (data.length < 5) {
+                    throw new IOException("Corrupt transformed block");
+                }
+                outputLength = new DataInputStream(new ByteArrayInputStream(data, 1, 4)).readInt();
+                // a transform adds at most a quarter of the block
+                if (outputLength < 0 || outputLength > length + length / 4 + 8) {
+                    throw new IOException("Corrupt transformed block");
+                }
+                start = 5;
+            }
+            LZWDecoder decoder = new LZWDecoder(options.newCodeReader(new ByteArrayInputStream(data, start,
+                    data.length - start)), options, outputLength);
+            byte[] output = new byte[outputLength];
+            int count = 0;
+            while (count < outputLength) {
+                int n = decoder.read(output, count, outputLength - count);
+                if (n == -1) {
+                    throw new IOException("Corrupt block, expected " + outputLength + " bytes but got " + count);
+                }
+                count += n;
+            }
+            if (transform == LZWTransform.NONE) {
+                return output;
+            }
+            try {
+                return LZWTransform.inverse(transform, output, length);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt transformed block", e);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Wait for the task and rethrow the IOException of the task.
+     * @param task task
+     * @return result of the task
+     * @throws IOException exception
+     */
+    static byte[] join(ForkJoinTask<byte[]> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Read the bytes at the file position.
+     * @param channel file channel
+     * @param length number of bytes
+     * @param position file position
+     * @return bytes read
+     * @throws IOException exception
+     */
+    static byte[] readFully(FileChannel channel, int length, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException("Unexpected end of file");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Write all the bytes at the file position.
+     * @param channel file channel
+     * @param bytes bytes to write
+     * @param position file position
+     * @throws IOException exception
+     */
+    static void writeFully(FileChannel channel, byte[] bytes, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
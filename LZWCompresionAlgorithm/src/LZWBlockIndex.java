@@ -0,0 +1,171 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Header of the block format. The input is cut into blocks of a fixed size which are compressed independently, and
+ * the header keeps the file offset of every compressed block so any block can be found without reading the others.
+ * The layout after the format bytes is the codec options, the block size, the original length, the number of blocks
+ * and then one offset per block plus the end offset of the last block. Every block starts with its method byte, see
+ * LZWBlockCompressor.
+ */
+public class LZWBlockIndex {
+    /**
+     * Codec options of every block
+     */
+    private LZWOptions options;
+    /**
+     * Number of original bytes in a block, only the last block may be shorter
+     */
+    private int blockSize;
+    /**
+     * Number of original bytes
+     */
+    private long length;
+    /**
+     * File offset of every block plus the end offset of the last block
+     */
+    private long[] offsets;
+
+    /**
+     * Constructor method, the offsets are filled in with setOffset
+     * @param options codec options of every block
+     * @param blockSize number of original bytes in a block
+     * @param length number of original bytes
+     */
+    public LZWBlockIndex(LZWOptions options, int blockSize, long length) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.options = options;
+        this.blockSize = blockSize;
+        this.length = length;
+        long blockCount = (length + blockSize - 1) / blockSize;
+        if (blockCount >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many blocks");
+        }
+        offsets = new long[(int) blockCount + 1];
+    }
+
+    /**
+     * Get the codec options of every block
+     * @return codec options
+     */
+    public LZWOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get the number of original bytes in a block
+     * @return block size
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Get the number of original bytes
+     * @return original length
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Get the number of blocks
+     * @return number of blocks
+     */
+    public int getBlockCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Get the number of original bytes in the block
+     * @param block block index
+     * @return number of original bytes
+     */
+    public int getBlockLength(int block) {
+        return (int) Math.min(blockSize, length - (long) block * blockSize);
+    }
+
+    /**
+     * Get the file offset of the block
+     * @param block block index
+     * @return file offset
+     */
+    public long getOffset(int block) {
+        return offsets[block];
+    }
+
+    /**
+     * Set the file offset of the block, the block count as index sets the end offset of the last block
+     * @param block block index
+     * @param offset file offset
+     */
+    public void setOffset(int block, long offset) {
+        offsets[block] = offset;
+    }
+
+    /**
+     * Get the number of compressed bytes of the block
+     * @param block block index
+     * @return number of compressed bytes
+     */
+    public int getCompressedLength(int block) {
+        return (int) (offsets[block + 1] - offsets[block]);
+    }
+
+    /**
+     * Get the number of bytes of the whole header, format bytes included
+     * @return header size
+     */
+    public int getHeaderSize() {
+        return 4 + options.getHeaderSize() + 4 + 8 + 4 + offsets.length * 8;
+    }
+
+    /**
+     * Write the whole header, format bytes included
+     * @param out output stream
+     * @throws IOException exception
+     */
+    public void write(DataOutputStream out) throws IOException {
+        LZWCompression.writeFormat(out, LZWCompression.FORMAT_BLOCK);
+        options.writeHeader(out);
+        out.writeInt(blockSize);
+        out.writeLong(length);
+        out.writeInt(getBlockCount());
+        for (long offset : offsets) {
+            out.writeLong(offset);
+        }
+    }
+
+    /**
+     * Read the header after the format bytes
+     * @param in input stream
+     * @param presetDictionary dictionary named by the header, null for none
+     * @return block index
+     * @throws IOException exception
+     */
+    public static LZWBlockIndex read(DataInputStream in, LZWPresetDictionary presetDictionary) throws IOException {
+        LZWOptions options = LZWOptions.readHeader(in, presetDictionary);
+        int blockSize = in.readInt();
+        long length = in.readLong();
+        int blockCount = in.readInt();
+        LZWBlockIndex index;
+        try {
+            index = new LZWBlockIndex(options, blockSize, length);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt block index", e);
+        }
+        if (index.getBlockCount() != blockCount) {
+            throw new IOException("Corrupt block index");
+        }
+        for (int i = 0; i <= blockCount; i++) {
+            index.offsets[i] = in.readLong();
+            if (i > 0 && index.offsets[i] < index.offsets[i - 1]) {
+                throw new IOException("Corrupt block index");
+            }
+        }
+        return index;
+    }
+}
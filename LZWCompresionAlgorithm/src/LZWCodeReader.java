@@ -0,0 +1,16 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * First stage of the decompressor, which turns the bytes back into LZW codes. BitInputStream reads the codes as they
+ * are and RangeDecoder decodes the entropy-coded codes.
+ */
+public interface LZWCodeReader extends Closeable {
+    /**
+     * Read a value of the given width
+     * @param width number of bits, 1 to 31
+     * @return the value, or -1 at the end of the codes
+     * @throws IOException exception
+     */
+    int readBits(int width) throws IOException;
+}
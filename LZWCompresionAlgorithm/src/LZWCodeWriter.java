@@ -0,0 +1,34 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Last stage of the compressor, which turns the LZW codes into bytes. BitOutputStream writes the codes as they are and
+ * RangeEncoder entropy-codes them.
+ */
+public interface LZWCodeWriter extends Closeable {
+    /**
+     * Write the low bits of the value
+     * @param value value to write
+     * @param width number of bits, 1 to 32
+     * @throws IOException exception
+     */
+    void writeBits(int value, int width) throws IOException;
+
+    /**
+     * Get the number of bits written so far, an estimate for a stage that codes the bits
+     * @return number of bits written
+     */
+    long getBitsWritten();
+
+    /**
+     * Write the bytes that are final to the output stream and flush it, more codes may follow
+     * @throws IOException exception
+     */
+    void flushCompleteBytes() throws IOException;
+
+    /**
+     * End the codes and write all the bytes to the output stream
+     * @throws IOException exception
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,555 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * LZWColumnarCompressor compresses a CSV file column by column. The first record gives the column names, every column
+ * becomes one stream of values separated by newlines, and the streams are compressed as independent blocks in parallel,
+ * see LZWBlockCompressor.compressBlock. A column whose values are all plain decimal numbers may be stored as the
+ * differences between the values scaled to the largest number of fraction digits, and a value with fewer fraction
+ * digits keeps its own count after a colon, so the text comes back exactly. Such a column is compressed both ways and
+ * the smaller stream is kept, since the differences help plain LZW but may hurt the transforms. The layout is the
+ * format bytes, the codec options, the column streams, the directory and the offset of the directory in the last 8
+ * bytes. The directory is the line terminator, whether the file ends with it, the number of records, the number of
+ * columns and then the name, the kind, the scale, the stream length, the offset and the compressed length of every
+ * column. Fields are split at every comma, so a file whose records do not all have the same number of fields, or whose
+ * fields hold a line break, is rejected. The whole file is read into memory.
+ */
+public class LZWColumnarCompressor {
+    /**
+     * Format of a columnar file
+     */
+    static final int FORMAT_COLUMNAR = 'C';
+    /**
+     * Kind of a column stored as text
+     */
+    private static final int KIND_TEXT = 0;
+    /**
+     * Kind of a column stored as differences of scaled numbers
+     */
+    private static final int KIND_DELTA = 1;
+    /**
+     * Max number of digits of a scaled number, so the differences fit in a long
+     */
+    private static final int MAX_DIGITS = 18;
+    /**
+     * Line terminators, the index is written to the directory
+     */
+    private static final String[] TERMINATORS = {"\n", "\r", "\r\n"};
+    /**
+     * Powers of ten that fit in a long
+     */
+    private static final long[] POWERS = new long[MAX_DIGITS + 1];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+    }
+    /**
+     * Number of threads
+     */
+    private int parallelism;
+
+    /**
+     * Constructor method
+     * @param parallelism number of threads
+     */
+    public LZWColumnarCompressor(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Compress the CSV file column by column.
+     * @param inputFile CSV file
+     * @param outputFile output file
+     * @param options codec options, the legacy format has no room in the header so it is not allowed
+     * @throws IOException exception
+     */
+    public void compress(String inputFile, String outputFile, LZWOptions options) throws IOException {
+        if (options.isLegacy()) {
+            throw new IllegalArgumentException("The columnar format needs a header");
+        }
+        // bytes map one to one to chars in ISO-8859-1, so the text comes back byte for byte
+        String text = new String(Files.readAllBytes(Paths.get(inputFile)), StandardCharsets.ISO_8859_1);
+        int terminator = findTerminator(text);
+        String separator = TERMINATORS[terminator];
+        boolean endsWithTerminator = text.endsWith(separator);
+        List<String[]> records = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf(separator, start);
+            if (end == -1) {
+                end = text.length();
+            }
+            records.add(text.substring(start, end).split(",", -1));
+            start = end + separator.length();
+        }
+        int columnCount = records.isEmpty() ? 0 : records.get(0).length;
+        for (String[] record : records) {
+            if (record.length != columnCount) {
+                throw new IOException("Every record must have " + columnCount + " fields");
+            }
+            for (String field : record) {
+                if (field.indexOf('\n') != -1 || field.indexOf('\r') != -1) {
+                    throw new IOException("Fields must not hold line breaks");
+                }
+            }
+        }
+        Column[] columns = new Column[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = buildColumn(records, i);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile)))) {
+            List<ForkJoinTask<byte[]>> tasks = new ArrayList<>();
+            List<ForkJoinTask<byte[]>> textTasks = new ArrayList<>();
+            for (Column column : columns) {
+                byte[] stream = column.stream;
+                byte[] textStream = column.textStream;
+                tasks.add(pool.submit(() -> LZWBlockCompressor.compressBlock(stream, stream.length, options)));
+                textTasks.add(textStream == null ? null
+                        : pool.submit(() -> LZWBlockCompressor.compressBlock(textStream, textStream.length, options)));
+            }
+            LZWCompression.writeFormat(out, FORMAT_COLUMNAR);
+            options.writeHeader(out);
+            long position = 4 + options.getHeaderSize();
+            for (int i = 0; i < columnCount; i++) {
+                byte[] compressed = LZWBlockCompressor.join(tasks.get(i));
+                if (textTasks.get(i) != null) {
+                    byte[] compressedText = LZWBlockCompressor.join(textTasks.get(i));
+                    if (compressedText.length <= compressed.length) {
+                        compressed = compressedText;
+                        columns[i].kind = KIND_TEXT;
+                        columns[i].scale = 0;
+                        columns[i].length = columns[i].textStream.length;
+                    }
+                }
+                out.write(compressed);
+                columns[i].offset = position;
+                columns[i].compressedLength = compressed.length;
+                position += compressed.length;
+            }
+            out.writeByte(terminator);
+            out.writeBoolean(endsWithTerminator);
+            out.writeInt(records.size());
+            out.writeInt(columnCount);
+            for (Column column : columns) {
+                out.writeUTF(column.name);
+                out.writeByte(column.kind);
+                out.writeByte(column.scale);
+                out.writeInt(column.length);
+                out.writeLong(column.offset);
+                out.writeInt(column.compressedLength);
+            }
+            out.writeLong(position);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Decompress every column in parallel and put the records back together.
+     * @param inputFile columnar file
+     * @param outputFile CSV file
+     * @param presetDictionary dictionary named by the header, null for none
+     * @throws IOException exception
+     */
+    public void decompress(String inputFile, String outputFile, LZWPresetDictionary presetDictionary)
+            throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            Directory directory = readDirectory(channel, presetDictionary);
+            int columnCount = directory.columns.length;
+            List<ForkJoinTask<String[]>> tasks = new ArrayList<>();
+            for (Column column : directory.columns) {
+                tasks.add(pool.submit(() -> readValues(channel, directory, column)));
+            }
+            String[][] values = new String[columnCount][];
+            for (int i = 0; i < columnCount; i++) {
+                values[i] = joinValues(tasks.get(i));
+            }
+            byte[] separator = TERMINATORS[directory.terminator].getBytes(StandardCharsets.ISO_8859_1);
+            for (int record = 0; record < directory.recordCount; record++) {
+                if (record > 0) {
+                    out.write(separator);
+                }
+                for (int i = 0; i < columnCount; i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    String field = record == 0 ? directory.columns[i].name : values[i][record - 1];
+                    out.write(field.getBytes(StandardCharsets.ISO_8859_1));
+                }
+            }
+            if (directory.endsWithTerminator) {
+                out.write(separator);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Decompress one column only, as a CSV file with the column name and then one value per record. The name is
+     * compared without the spaces around it.
+     * @param inputFile columnar file
+     * @param name column name
+     * @param presetDictionary dictionary named by the header, null for none
+     * @return bytes of the column
+     * @throws IOException exception
+     */
+    public static byte[] readColumn(String inputFile, String name, LZWPresetDictionary presetDictionary)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ)) {
+            Directory directory = readDirectory(channel, presetDictionary);
+            for (Column column : directory.columns) {
+                // the names may be padded with spaces
+                if (column.name.trim().equals(name.trim())) {
+                    String separator = TERMINATORS[directory.terminator];
+                    StringBuilder builder = new StringBuilder(column.name);
+                    for (String value : readValues(channel, directory, column)) {
+                        builder.append(separator).append(value);
+                    }
+                    if (directory.endsWithTerminator) {
+                        builder.append(separator);
+                    }
+                    return builder.toString().getBytes(StandardCharsets.ISO_8859_1);
+                }
+            }
+            throw new IOException("No column " + name);
+        }
+    }
+
+    /**
+     * Find the line terminator of the first record
+     * @param text file text
+     * @return index of the terminator
+     */
+    private static int findTerminator(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                return 0;
+            }
+            if (text.charAt(i) == '\r') {
+                return i + 1 < text.length() && text.charAt(i + 1) == '\n' ? 2 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Build the stream of one column, as differences when every value is a plain decimal number, and then the text is
+     * kept too
+     * @param records records, the first one holds the names
+     * @param index column index
+     * @return column
+     */
+    private static Column buildColumn(List<String[]> records, int index) {
+        Column column = new Column();
+        column.name = records.get(0)[index];
+        int count = records.size() - 1;
+        long[] mantissas = new long[count];
+        int[] scales = new int[count];
+        boolean numeric = count > 0;
+        int maxIntegerDigits = 0;
+        for (int i = 0; i < count && numeric; i++) {
+            String value = records.get(i + 1)[index];
+            numeric = parseNumber(value, mantissas, scales, i);
+            if (numeric) {
+                int integerDigits = value.length() - (value.startsWith("-") ? 1 : 0)
+                        - (scales[i] > 0 ? scales[i] + 1 : 0);
+                maxIntegerDigits = Math.max(maxIntegerDigits, integerDigits);
+                column.scale = Math.max(column.scale, scales[i]);
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(records.get(i + 1)[index]).append('\n');
+        }
+        byte[] textStream = builder.toString().getBytes(StandardCharsets.ISO_8859_1);
+        builder.setLength(0);
+        if (numeric && maxIntegerDigits + column.scale <= MAX_DIGITS) {
+            column.kind = KIND_DELTA;
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                long scaled = mantissas[i] * POWERS[column.scale - scales[i]];
+                builder.append(scaled - previous);
+                if (scales[i] != column.scale) {
+                    builder.append(':').append(scales[i]);
+                }
+                builder.append('\n');
+                previous = scaled;
+            }
+            column.stream = builder.toString().getBytes(StandardCharsets.ISO_8859_1);
+            column.textStream = textStream;
+        } else {
+            column.kind = KIND_TEXT;
+            column.scale = 0;
+            column.stream = textStream;
+        }
+        column.length = column.stream.length;
+        return column;
+    }
+
+    /**
+     * Parse a plain decimal number: an optional minus, no leading zeros, an optional fraction and no negative zero
+     * @param value text
+     * @param mantissas digits of every value without the point
+     * @param scales number of fraction digits of every value
+     * @param index index of the value
+     * @return whether the text is a plain decimal number
+     */
+    private static boolean parseNumber(String value, long[] mantissas, int[] scales, int index) {
+        int i = value.startsWith("-") ? 1 : 0;
+        int point = value.indexOf('.');
+        int integerEnd = point == -1 ? value.length() : point;
+        int integerDigits = integerEnd - i;
+        if (integerDigits == 0 || (integerDigits > 1 && value.charAt(i) == '0')
+                || (point != -1 && point == value.length() - 1)) {
+            return false;
+        }
+        int digits = value.length() - i - (point == -1 ? 0 : 1);
+        if (digits > MAX_DIGITS) {
+            return false;
+        }
+        long mantissa = 0;
+        for (int j = i; j < value.length(); j++) {
+            char c = value.charAt(j);
+            if (j == point) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            mantissa = mantissa * 10 + (c - '0');
+        }
+        if (i == 1 && mantissa == 0) {
+            return false;
+        }
+        mantissas[index] = i == 1 ? -mantissa : mantissa;
+        scales[index] = point == -1 ? 0 : value.length() - point - 1;
+        return true;
+    }
+
+    /**
+     * Format a scaled number with the given number of fraction digits
+     * @param scaled number scaled to the column scale
+     * @param columnScale column scale
+     * @param scale number of fraction digits of the value
+     * @return text of the value
+     * @throws IOException exception
+     */
+    private static String formatNumber(long scaled, int columnScale, int scale) throws IOException {
+        if (scale < 0 || scale > columnScale || scaled % POWERS[columnScale - scale] != 0) {
+            throw new IOException("Corrupt numeric column");
+        }
+        long mantissa = scaled / POWERS[columnScale - scale];
+        String digits = Long.toString(Math.abs(mantissa));
+        if (scale == 0) {
+            return mantissa < 0 ? "-" + digits : digits;
+        }
+        StringBuilder builder = new StringBuilder();
+        if (mantissa < 0) {
+            builder.append('-');
+        }
+        // pad so there is at least one integer digit
+        for (int i = digits.length(); i <= scale; i++) {
+            builder.append('0');
+        }
+        builder.append(digits);
+        builder.insert(builder.length() - scale, '.');
+        return builder.toString();
+    }
+
+    /**
+     * Read and decompress the stream of one column
+     * @param channel file channel
+     * @param directory directory
+     * @param column column
+     * @return values of the column, without the name
+     */
+    private static String[] readValues(FileChannel channel, Directory directory, Column column) {
+        try {
+            byte[] compressed = LZWBlockCompressor.readFully(channel, column.compressedLength, column.offset);
+            byte[] stream = LZWBlockCompressor.decompressBlock(compressed, column.length, directory.options);
+            String text = new String(stream, StandardCharsets.ISO_8859_1);
+            int count = Math.max(directory.recordCount - 1, 0);
+            String[] values = new String[count];
+            int start = 0;
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                int end = text.indexOf('\n', start);
+                if (end == -1) {
+                    throw new IOException("Corrupt column " + column.name);
+                }
+                String value = text.substring(start, end);
+                start = end + 1;
+                if (column.kind == KIND_DELTA) {
+                    int colon = value.indexOf(':');
+                    int scale = colon == -1 ? column.scale : Integer.parseInt(value.substring(colon + 1));
+                    previous += Long.parseLong(colon == -1 ? value : value.substring(0, colon));
+                    value = formatNumber(previous, column.scale, scale);
+                }
+                values[i] = value;
+            }
+            if (start != text.length()) {
+                throw new IOException("Corrupt column " + column.name);
+            }
+            return values;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NumberFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupt column " + column.name, e));
+        }
+    }
+
+    /**
+     * Read the codec options and the directory
+     * @param channel file channel
+     * @param presetDictionary dictionary named by the header, null for none
+     * @return directory
+     * @throws IOException exception
+     */
+    private static Directory readDirectory(FileChannel channel, LZWPresetDictionary presetDictionary)
+            throws IOException {
+        long size = channel.size();
+        byte[] header = LZWBlockCompressor.readFully(channel, (int) Math.min(size, 4 + 2 + 4 + 4), 0);
+        ByteArrayInputStream headerStream = new ByteArrayInputStream(header);
+        if (LZWCompression.readFormat(headerStream) != FORMAT_COLUMNAR || size < 4 + 2 + 10 + 8) {
+            throw new IOException("Not an LZW columnar file");
+        }
+        Directory directory = new Directory();
+        directory.options = LZWOptions.readHeader(new DataInputStream(headerStream), presetDictionary);
+        long directoryOffset = new DataInputStream(new ByteArrayInputStream(
+                LZWBlockCompressor.readFully(channel, 8, size - 8))).readLong();
+        if (directoryOffset < 4 || directoryOffset > size - 8 - 10 || size - 8 - directoryOffset > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt columnar directory");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(LZWBlockCompressor.readFully(channel,
+                (int) (size - 8 - directoryOffset), directoryOffset)));
+        directory.terminator = in.readUnsignedByte();
+        directory.endsWithTerminator = in.readBoolean();
+        directory.recordCount = in.readInt();
+        int columnCount = in.readInt();
+        if (directory.terminator >= TERMINATORS.length || directory.recordCount < 0 || columnCount < 0
+                || (columnCount == 0) != (directory.recordCount == 0)) {
+            throw new IOException("Corrupt columnar directory");
+        }
+        directory.columns = new Column[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            Column column = new Column();
+            column.name = in.readUTF();
+            column.kind = in.readUnsignedByte();
+            column.scale = in.readUnsignedByte();
+            column.length = in.readInt();
+            column.offset = in.readLong();
+            column.compressedLength = in.readInt();
+            if (column.kind > KIND_DELTA || column.scale > MAX_DIGITS || column.length < 0
+                    || column.compressedLength < 0 || column.offset < 4
+                    || column.offset + column.compressedLength > directoryOffset) {
+                throw new IOException("Corrupt columnar directory");
+            }
+            directory.columns[i] = column;
+        }
+        return directory;
+    }
+
+    /**
+     * Wait for the task and rethrow the IOException of the task.
+     * @param task task
+     * @return result of the task
+     * @throws IOException exception
+     */
+    private static String[] joinValues(ForkJoinTask<String[]> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Column of the directory
+     */
+    private static class Column {
+        /**
+         * Column name
+         */
+        private String name;
+        /**
+         * Kind of the stream
+         */
+        private int kind;
+        /**
+         * Number of fraction digits the numbers are scaled to
+         */
+        private int scale;
+        /**
+         * Stream before compression
+         */
+        private byte[] stream;
+        /**
+         * Values as text when the stream holds differences, null otherwise
+         */
+        private byte[] textStream;
+        /**
+         * Number of bytes of the stream
+         */
+        private int length;
+        /**
+         * File offset of the compressed stream
+         */
+        private long offset;
+        /**
+         * Number of compressed bytes
+         */
+        private int compressedLength;
+    }
+
+    /**
+     * Directory of a columnar file
+     */
+    private static class Directory {
+        /**
+         * Codec options of every column
+         */
+        private LZWOptions options;
+        /**
+         * Index of the line terminator
+         */
+        private int terminator;
+        /**
+         * Whether the file ends with the line terminator
+         */
+        private boolean endsWithTerminator;
+        /**
+         * Number of records, the names included
+         */
+        private int recordCount;
+        /**
+         * Columns
+         */
+        private Column[] columns;
+    }
+}
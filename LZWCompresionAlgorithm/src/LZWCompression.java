@@ -1,4 +1,17 @@
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * LZWCompression class allows the users to compress and decompress the files using LZW compression algorithm. The
@@ -7,253 +20,295 @@ import java.io.*;
  */
 public class LZWCompression {
     /**
-     * Store 12 bits for buffer
+     * First bytes of a file with a header. A legacy file starts with the high 8 bits of a 12-bit code below 256, so
+     * its first byte is always below 0x10.
      */
-    private byte[] buffer = new byte[3];
+    static final byte[] MAGIC = {'L', 'Z'};
     /**
-     * buffer size
+     * Format of the headerless 12-bit files
      */
-    private int bufferSize = 0;
+    static final int FORMAT_LEGACY = 0;
     /**
-     * HashMap used for compress
+     * Format of a single code stream after the header
      */
-    private MyHashMap<String, Integer> compressMap;
+    static final int FORMAT_STREAM = 'S';
     /**
-     * HashMap used for decompress
+     * Format of independent blocks after a block index
      */
-    private MyHashMap<Integer, String> decompressMap;
+    static final int FORMAT_BLOCK = 'B';
     /**
-     * Stores the information from the compressed file
+     * Version of the header
      */
-    private MyLinkedList<Integer> codes = new MyLinkedList<>();
-
+    static final int VERSION = 1;
     /**
-     * Read and compress the file.
-     * @param inputFile input file
-     * @param outputFile output file
-     * @throws IOException exception
+     * Number of threads of the block format
      */
-    public void compress(String inputFile, String outputFile) throws IOException {
-        // generate io stream
-        DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(inputFile)));
-        DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile)));
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    /**
+     * Whether the stream format is read through memory-mapped files and written through direct buffers
+     */
+    private boolean memoryMapped;
+    /**
+     * Pipeline that overlaps the disk with the codec for the stream format, null to run on a single thread
+     */
+    private LZWPipeline pipeline;
+    /**
+     * Dictionary available to the decompressor, null for none
+     */
+    private LZWPresetDictionary presetDictionary;
 
-        // create the hashMap for compression
-        int size = 256;
-        compressMap = new MyHashMap<>(size);
-        for(int i=0;i<compressMap.getSize();i++) {
-            compressMap.put(Character.toString((char)i),i);
+    /**
+     * Set the number of threads used to compress and decompress blocks.
+     * @param parallelism number of threads
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
         }
+        this.parallelism = parallelism;
+    }
 
-        // read files
-        byte inputByte;
-        char inputCharacter;
-        String string = "";
-
-        try {
-            // read the data stream
-            inputByte = dataInputStream.readByte();
-            // remove extra bits
-            inputCharacter = (char)(inputByte & 0xFF);
-            string = string+inputCharacter;
+    /**
+     * Set whether the stream format is read through memory-mapped files and written through direct buffers.
+     * @param memoryMapped whether to use memory-mapped I/O
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
 
-            while(true) {
-                inputByte = dataInputStream.readByte();
-                // reset the hashMap when exceed the limit
-                if(size == 4096) {
-                    size = 256;
-                    compressMap = new MyHashMap<>(256);
-                    for(int i=0;i<compressMap.getSize();i++) {
-                        compressMap.put(Character.toString((char)i),i);
-                    }
-                }
+    /**
+     * Set the pipeline used for the stream and legacy formats, null to run on a single thread.
+     * @param pipeline pipeline
+     */
+    public void setPipeline(LZWPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
 
-                // remove extra bits
-                inputCharacter = (char) (inputByte & 0xFF);
-                // if hashMap contains key
-                if(compressMap.containsKey(string+inputCharacter)) {
-                    string = string+inputCharacter;
-                } else {
-                    // write to chunk
-                    writeToChunk(string, dataOutputStream,false);
-                    // put k-v pairs to hashMap
-                    compressMap.put(string+inputCharacter,size);
-                    size++;
-                    string = Character.toString(inputCharacter);
-                }
-            }
-        } catch (EOFException e) {
-            dataInputStream.close();
-        }
+    /**
+     * Set the dictionary available to the decompressor, files that name another dictionary are rejected.
+     * @param presetDictionary preset dictionary, null for none
+     */
+    public void setPresetDictionary(LZWPresetDictionary presetDictionary) {
+        this.presetDictionary = presetDictionary;
+    }
 
-        // close the output stream when finish write the last all bits to chunk
-        if(string.equals("")) {
-            writeToChunk(string,dataOutputStream,true);
-        }
-        dataOutputStream.close();
+    /**
+     * Read and compress the file.
+     * @param inputFile input file
+     * @param outputFile output file
+     * @throws IOException exception
+     */
+    public void compress(String inputFile, String outputFile) throws IOException {
+        compress(inputFile, outputFile, LZWOptions.legacy());
     }
 
     /**
-     * Wirte the bits to the file in chunk
-     * @param s string
-     * @param outputStream output stream
-     * @param meetLast whether meet last bits
+     * Read and compress the file with the options.
+     * @param inputFile input file
+     * @param outputFile output file
+     * @param options codec options
      * @throws IOException exception
      */
-    private void writeToChunk(String s,DataOutputStream outputStream, boolean meetLast) throws IOException {
-        // if meet null value just return
-        if(compressMap.get(s)==null) {
+    public void compress(String inputFile, String outputFile, LZWOptions options) throws IOException {
+        if (pipeline != null) {
+            pipeline.compress(inputFile, outputFile, options);
             return;
         }
-        // get the binary string
-        String stringBinary = Integer.toBinaryString(compressMap.get(s));
-
-        // extend the string length to 12 with leading zeros
-        int length = stringBinary.length();
-        for(int i=length;i<12;i++) {
-            stringBinary = "0"+stringBinary;
+        if (memoryMapped) {
+            compressMapped(inputFile, outputFile, options);
+            return;
         }
-
-        // the string to write to chunk
-        String stringToWrite = "";
-
-        // write bits to the chunk with 12-bit chunk
-        // if buffer size is 0
-        if(bufferSize == 0) {
-            stringToWrite = stringBinary.substring(0,8);
-            buffer[0] = (byte) Integer.parseInt(stringToWrite,2);
-            stringToWrite = stringBinary.substring(8,12)+"0000";
-            buffer[1] = (byte) Integer.parseInt(stringToWrite,2);
-            if(meetLast == true) {
-                outputStream.writeByte(buffer[0]);
-            }
-            bufferSize++;
-        } else {
-            // if buffer size is not zero
-            stringToWrite = stringBinary.substring(0,4);
-            buffer[1] += (byte) (Integer.parseInt(stringToWrite,2));
-            stringToWrite = stringBinary.substring(4,12);
-            buffer[2] = (byte) Integer.parseInt(stringToWrite,2);
-            // write and reset the buffer
-            for(int i=0;i<3;i++) {
-                outputStream.writeByte(buffer[i]);
-                buffer[i] = 0;
-            }
-            bufferSize = 0;
+        // the input is read in bulk, the end is found from the read length
+        try (InputStream inputStream = new FileInputStream(inputFile);
+             LZWOutputStream outputStream = new LZWOutputStream(new FileOutputStream(outputFile), options)) {
+            inputStream.transferTo(outputStream);
         }
     }
 
     /**
-     * Decompress the file.
+     * Compress the memory-mapped file, the codes are written through a direct buffer.
      * @param inputFile input file
      * @param outputFile output file
+     * @param options codec options
      * @throws IOException exception
      */
-    public void decompress(String inputFile, String outputFile) throws IOException {
-        // input data stream
-        DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(inputFile)));
-        // output stream
-        DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile)));
-
-        // create the hashMap for decompression
-        int size = 256;
-        decompressMap = new MyHashMap<>(256);
-        for (int i=0;i<decompressMap.getSize();i++) {
-            decompressMap.put(i, Character.toString((char) i));
+    private void compressMapped(String inputFile, String outputFile, LZWOptions options) throws IOException {
+        try (MappedInputStream inputStream = new MappedInputStream(openChannel(inputFile, false));
+             LZWOutputStream outputStream = new LZWOutputStream(new ChannelOutputStream(openChannel(outputFile, true),
+                     ChannelOutputStream.DEFAULT_BUFFER_SIZE), options)) {
+            MappedByteBuffer window;
+            while ((window = inputStream.nextWindow()) != null) {
+                outputStream.write(window);
+            }
         }
+    }
 
-        // read file, save the information to linked list and reset the linked list
-        readFile(dataInputStream);
-        codes.reset();
-
-        // the former code in the linked list
-        int formerCode = codes.next();
-        // current code in the linked list
-        int code = 0;
+    /**
+     * Compress the file in independent blocks which are compressed in parallel.
+     * @param inputFile input file
+     * @param outputFile output file
+     * @param options codec options, not legacy
+     * @param blockSize number of original bytes in a block
+     * @throws IOException exception
+     */
+    public void compressBlocks(String inputFile, String outputFile, LZWOptions options, int blockSize)
+            throws IOException {
+        new LZWBlockCompressor(parallelism).compress(inputFile, outputFile, options, blockSize);
+    }
 
-        // update the decompress Map
-        writeCodes(decompressMap.get(formerCode),dataOutputStream);
+    /**
+     * Compress the CSV file column by column, the columns are compressed in parallel.
+     * @param inputFile CSV file
+     * @param outputFile output file
+     * @param options codec options, not legacy
+     * @throws IOException exception
+     */
+    public void compressColumns(String inputFile, String outputFile, LZWOptions options) throws IOException {
+        new LZWColumnarCompressor(parallelism).compress(inputFile, outputFile, options);
+    }
 
-        String newString = "";
-        while (codes.hasNext()) {
-            // reset the hashMap when exceed the limit
-            if(size == 4096) {
-                decompressMap = new MyHashMap<>(256);
-                for (int i=0;i<decompressMap.getSize();i++) {
-                    decompressMap.put(i, Character.toString((char)i));
+    /**
+     * Compress many files into one archive, the entries are compressed concurrently.
+     * @param input directory whose files are archived, or a list file prefixed by '@' with one relative path a line
+     * @param archiveFile archive file
+     * @param options codec options, not legacy
+     * @throws IOException exception
+     */
+    public void createArchive(String input, String archiveFile, LZWOptions options) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        if (input.startsWith("@")) {
+            // the names are the listed paths made relative, they must stay under the root and be unique
+            Set<String> listed = new HashSet<>();
+            for (String line : Files.readAllLines(Paths.get(input.substring(1)))) {
+                if (!line.isEmpty()) {
+                    Path file = Paths.get(line);
+                    Path name = file.normalize();
+                    if (name.getRoot() != null || name.toString().isEmpty() || name.startsWith("..")) {
+                        throw new IllegalArgumentException("Invalid entry name " + line);
+                    }
+                    String entryName = name.toString().replace(File.separatorChar, '/');
+                    if (!listed.add(entryName)) {
+                        throw new IllegalArgumentException("Duplicate entry name " + line);
+                    }
+                    names.add(entryName);
+                    files.add(file);
                 }
-                size = 256;
             }
-            code = codes.next();
-            // if hashmap contains the code
-            if(!decompressMap.containsKey(code)) {
-                if(decompressMap.get(formerCode) == null) {
-                    continue;
-                }
-                newString = decompressMap.get(formerCode)+decompressMap.get(formerCode).charAt(0);
-                decompressMap.put(size,newString);
-                writeCodes(newString,dataOutputStream);
-            } else {
-                // if not
-                newString = decompressMap.get(formerCode)+decompressMap.get(code).charAt(0);
-                decompressMap.put(size,newString);
-                writeCodes(decompressMap.get(code),dataOutputStream);
+        } else {
+            // the names are the paths relative to the directory
+            Path root = Paths.get(input);
+            try (Stream<Path> paths = Files.walk(root)) {
+                files.addAll(paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+            }
+            for (Path file : files) {
+                names.add(root.relativize(file).toString().replace(File.separatorChar, '/'));
             }
-            size++;
-            // update former code
-            formerCode = code;
         }
-        // close the output data stream when finish processing the last bit
-        dataOutputStream.close();
+        new LZWArchive(parallelism).create(archiveFile, names, files, options);
     }
 
     /**
-     * Read file.
-     * @param inputStream input stream
+     * Extract every entry of the archive under the output directory.
+     * @param archiveFile archive file
+     * @param outputDirectory output directory
      * @throws IOException exception
      */
-    private void readFile(DataInputStream inputStream) throws IOException {
+    public void extractArchive(String archiveFile, String outputDirectory) throws IOException {
+        new LZWArchive(parallelism).extract(archiveFile, outputDirectory, presetDictionary);
+    }
 
-        try{
-            while (true) {
-                // remove extra bits, read the strings with leading zeros
-                // add the string to the linked list
-                String stringA = addZeros(Integer.toBinaryString(inputStream.readByte() & 0xFF));
-                String stringB = addZeros(Integer.toBinaryString(inputStream.readByte() & 0xFF));
-                codes.addAtTail(Integer.parseInt(stringA + stringB.substring(0, 4), 2));
-                String stringC = addZeros(Integer.toBinaryString(inputStream.readByte() & 0xFF));
-                codes.addAtTail(Integer.parseInt(stringB.substring(4,8)+stringC,2));
+    /**
+     * Decompress the file, the options are read from the header.
+     * @param inputFile input file
+     * @param outputFile output file
+     * @throws IOException exception
+     */
+    public void decompress(String inputFile, String outputFile) throws IOException {
+        // input stream
+        InputStream inputStream = memoryMapped ? new MappedInputStream(openChannel(inputFile, false))
+                : new BufferedInputStream(new FileInputStream(inputFile));
+        LZWOptions options;
+        try {
+            int format = readFormat(inputStream);
+            if (format == FORMAT_LEGACY) {
+                options = LZWOptions.legacy();
+            } else if (format == FORMAT_STREAM) {
+                options = LZWOptions.readHeader(new DataInputStream(inputStream), presetDictionary);
+            } else if (format == FORMAT_BLOCK) {
+                inputStream.close();
+                new LZWBlockCompressor(parallelism).decompress(inputFile, outputFile, presetDictionary);
+                return;
+            } else if (format == LZWColumnarCompressor.FORMAT_COLUMNAR) {
+                inputStream.close();
+                new LZWColumnarCompressor(parallelism).decompress(inputFile, outputFile, presetDictionary);
+                return;
+            } else {
+                throw new IOException("Unsupported LZW format");
             }
-        } catch (EOFException e) {
-            inputStream.close();
         } catch (IOException e) {
-            e.printStackTrace();
+            inputStream.close();
+            throw e;
+        }
+        if (pipeline != null) {
+            inputStream.close();
+            pipeline.decompress(inputFile, outputFile, presetDictionary);
+            return;
+        }
+        // output stream, the bytes are buffered by the decoder
+        try (LZWCodeReader codeReader = options.newCodeReader(inputStream);
+             OutputStream outputStream = memoryMapped
+                     ? new ChannelOutputStream(openChannel(outputFile, true), ChannelOutputStream.DEFAULT_BUFFER_SIZE)
+                     : new FileOutputStream(outputFile)) {
+            LZWDecoder decoder = new LZWDecoder(codeReader, options);
+            decoder.decodeTo(outputStream);
         }
     }
 
     /**
-     * Remove extra bits and make the string length is 8 with leading zeros.
-     * @param input input string
-     * @return string length is 8 with leading zeros
+     * Open the file channel for reading, or for writing from an empty file.
+     * @param file file name
+     * @param write whether to write the file
+     * @return file channel
+     * @throws IOException exception
      */
-    private String addZeros(String input) {
-        String noSignString = new String(input);
-        while (noSignString.length()<8) {
-            noSignString = "0"+noSignString;
+    private static FileChannel openChannel(String file, boolean write) throws IOException {
+        if (write) {
+            return FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
         }
-        return noSignString;
+        return FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+    }
+
+    /**
+     * Write the magic bytes, the format and the version.
+     * @param out output stream
+     * @param format format of the file
+     * @throws IOException exception
+     */
+    static void writeFormat(DataOutputStream out, int format) throws IOException {
+        out.write(MAGIC);
+        out.writeByte(format);
+        out.writeByte(VERSION);
     }
 
     /**
-     * Write codes to files.
-     * @param input input stream
-     * @param dataOutputStream data output stream
+     * Read the magic bytes, the format and the version. A legacy file has no header and is left untouched.
+     * @param in input stream that supports mark
+     * @return format of the file
      * @throws IOException exception
      */
-    private void writeCodes(String input, DataOutputStream dataOutputStream) throws IOException {
-        for(char c: input.toCharArray()) {
-            dataOutputStream.writeByte(c);
+    static int readFormat(InputStream in) throws IOException {
+        in.mark(4);
+        byte[] header = in.readNBytes(4);
+        if (header.length < 4 || header[0] != MAGIC[0] || header[1] != MAGIC[1]) {
+            in.reset();
+            return FORMAT_LEGACY;
+        }
+        if (header[3] != VERSION) {
+            throw new IOException("Unsupported LZW version " + header[3]);
         }
+        return header[2];
     }
 
     /**
@@ -261,48 +316,226 @@ public class LZWCompression {
      * The file size of words.html after compression is 1070355 bytes, the compression degree is 57.57%
      * The file size of CrimeLatLonXY.csv after compression is 1283748 bytes, the compression degree is 50.8%
      * The file size of 01_Overview.mp4 after compression is 33773772 bytes, the compression degree is -35.04%
+     *
+     * Usage: -c [-v] [-w bits] [-a] [-E] [-T] [-C] [-b kilobytes] [-j threads] [-m] [-p] [-D dictionaryFile]
+     * [-M megabytes] [-l level] inputFile outputFile, or
+     * -d [-v] [-j threads] [-m] [-p] [-D dictionaryFile] inputFile outputFile, or
+     * -r offset length [-v] [-D dictionaryFile] inputFile outputFile, or
+     * -K column [-v] [-D dictionaryFile] inputFile outputFile, or
+     * -s pattern [-v] [-D dictionaryFile] inputFile outputFile, or
+     * -t id version [-v] [-e entries] sampleFile dictionaryFile, or
+     * -A [-v] [-w bits] [-a] [-E] [-T] [-j entries] [-D dictionaryFile] [-M megabytes] [-l level]
+     * inputDirectory|@listFile archiveFile, or
+     * -X [-j entries] [-D dictionaryFile] archiveFile outputDirectory, or -L archiveFile.
+     * -v prints the bytes read and written. -w writes a header and uses codes that start at 9 bits and grow up to the
+     * given width, 9 to 24, instead of the legacy 12-bit codes. The decompressor reads the width from the header. -a
+     * keeps the full dictionary and clears it only when the compression ratio gets worse, 12 bits unless -w is given.
+     * -E entropy-codes the codes with an adaptive range coder, 12 bits unless -w is given. -b compresses independent
+     * blocks of the given size in parallel, 12 bits unless -w is given, and -j sets the number of threads, all the
+     * cores by default. -T picks run-length coding, Burrows-Wheeler with move-to-front or no transform for every block
+     * by a trial on its start, in blocks of 1024 kilobytes unless -b is given. -m maps the input file into memory and
+     * writes the output through direct buffers, for the stream and legacy formats. -p reads, codes and writes the
+     * stream and legacy formats on three threads and prints how long each of them waited for the others. -r
+     * decompresses only the given range of a file in the block format. -C compresses a CSV file column by column and in
+     * parallel, with the numeric columns stored as differences, 12 bits unless -w is given, and -K decompresses only
+     * the named column of such a file. -s writes the offset of every match of the pattern in a compressed file of the
+     * stream, legacy or block format, one per line, without decompressing the file. -t trains a dictionary of the given
+     * id and version on the sample, 4096 entries unless -e is given. -D loads the trained dictionary before the first
+     * byte, 16 bits unless -w is given, and the decompressor needs the same dictionary. -M keeps the dictionary of the
+     * compressor in the given number of megabytes of native memory instead of the heap, at least 16 bytes per code,
+     * which suits codes wider than 20 bits. A table is reused from block to block and one is taken for each block or
+     * entry compressed at once, so -M uses the megabytes times the threads, or times -j for an archive. -l 2 picks
+     * every phrase boundary by looking one phrase ahead, slower but smaller than the default -l 1, and any
+     * decompressor reads it. -A compresses every file under the directory, or every file in the list, into one
+     * archive, 12 bits unless -w is given, and -j sets the max number of entries compressed at once. The listed paths
+     * are named as given, so they must be relative, must not leave the current directory and must not repeat. -X
+     * extracts every entry of the archive and -L lists the entries from the directory of the archive.
      * @param args agrs
      */
     public static void main(String[] args) {
         LZWCompression lzw = new LZWCompression();
-        // check the args length
-        if (args.length == 3 || args.length == 4) {
+        // list the archive entries
+        if (args.length == 2 && args[0].equals("-L")) {
             try {
-                // compress file
-                if (args[0].equals("-c")) {
-                    if(args.length == 3) {
-                        lzw.compress(args[1], args[2]);
-                    }
-                    // check the detail bytes
-                    if(args.length == 4) {
-                        lzw.compress(args[2], args[3]);
-                        File infile = new File(args[2]);
-                        File outfile = new File(args[3]);
-                        System.out.printf("bytes read = %d , bytes written = %d", infile.length(), outfile.length());
-                    }
-                } else if (args[0].equals("-d")) {
-                    // decompress file
-                    if(args.length == 3) {
-                        lzw.decompress(args[1], args[2]);
-                    }
-                    // check the detail bytes
-                    if(args.length == 4) {
-                        lzw.decompress(args[2], args[3]);
-                        File infile = new File(args[2]);
-                        File outfile = new File(args[3]);
-                        System.out.printf("bytes read = %d , bytes written = %d", infile.length(), outfile.length());
+                for (LZWArchiveEntry entry : LZWArchive.list(args[1])) {
+                    System.out.printf("%d %d %s%n", entry.getLength(), entry.getCompressedLength(), entry.getName());
+                }
+            } catch (IOException e) {
+                printError();
+            }
+            return;
+        }
+        // check the args length
+        if (args.length < 3) {
+            printError();
+        }
+        String inputFile = args[args.length - 2];
+        String outputFile = args[args.length - 1];
+        boolean verbose = false;
+        // 0 for the legacy format
+        int maxBits = 0;
+        boolean adaptiveReset = false;
+        boolean rangeCoded = false;
+        boolean preprocessing = false;
+        boolean columnar = false;
+        // 0 for a single stream
+        int blockSize = 0;
+        LZWPipeline pipeline = null;
+        LZWPresetDictionary presetDictionary = null;
+        int dictionaryEntries = LZWPresetDictionary.DEFAULT_ENTRIES;
+        // 0 to keep the encoder dictionary on the heap
+        int offHeapMegabytes = 0;
+        int level = LZWOptions.LEVEL_GREEDY;
+        try {
+            // the range mode takes the offset and the length first, the training mode the id and the version
+            int firstOption = 1;
+            long rangeOffset = 0;
+            int rangeLength = 0;
+            int dictionaryId = 0;
+            int dictionaryVersion = 0;
+            String columnName = null;
+            String pattern = null;
+            if (args[0].equals("-K") || args[0].equals("-s")) {
+                if (args.length < 4) {
+                    printError();
+                }
+                columnName = args[1];
+                pattern = args[1];
+                firstOption = 2;
+            } else if (args[0].equals("-r") || args[0].equals("-t")) {
+                if (args.length < 5) {
+                    printError();
+                }
+                if (args[0].equals("-r")) {
+                    rangeOffset = Long.parseLong(args[1]);
+                    rangeLength = Integer.parseInt(args[2]);
+                } else {
+                    dictionaryId = Integer.parseInt(args[1]);
+                    dictionaryVersion = Integer.parseInt(args[2]);
+                }
+                firstOption = 3;
+            }
+            // read the options between the mode and the file names
+            for (int i = firstOption; i < args.length - 2; i++) {
+                if (args[i].equals("-v")) {
+                    verbose = true;
+                } else if (args[i].equals("-w") && i + 1 < args.length - 2) {
+                    maxBits = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-a")) {
+                    adaptiveReset = true;
+                } else if (args[i].equals("-E")) {
+                    rangeCoded = true;
+                } else if (args[i].equals("-T")) {
+                    preprocessing = true;
+                } else if (args[i].equals("-C")) {
+                    columnar = true;
+                } else if (args[i].equals("-b") && i + 1 < args.length - 2) {
+                    blockSize = Math.multiplyExact(Integer.parseInt(args[++i]), 1024);
+                } else if (args[i].equals("-j") && i + 1 < args.length - 2) {
+                    lzw.setParallelism(Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-m")) {
+                    lzw.setMemoryMapped(true);
+                } else if (args[i].equals("-p")) {
+                    pipeline = new LZWPipeline(LZWPipeline.DEFAULT_BUFFER_SIZE, LZWPipeline.DEFAULT_BUFFER_COUNT);
+                    lzw.setPipeline(pipeline);
+                } else if (args[i].equals("-D") && i + 1 < args.length - 2) {
+                    try (InputStream dictionaryStream = new BufferedInputStream(new FileInputStream(args[++i]))) {
+                        presetDictionary = LZWPresetDictionary.read(dictionaryStream);
                     }
+                    lzw.setPresetDictionary(presetDictionary);
+                } else if (args[i].equals("-l") && i + 1 < args.length - 2) {
+                    level = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-M") && i + 1 < args.length - 2) {
+                    offHeapMegabytes = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-e") && i + 1 < args.length - 2) {
+                    dictionaryEntries = Integer.parseInt(args[++i]);
                 } else {
-                    System.out.println("Error Please Enter Again");
-                    System.exit(0);
+                    printError();
                 }
-            } catch (IOException e) {
-                System.out.println("Error Please Enter Again");
-                System.exit(0);
             }
-        } else {
-            System.out.println("Error Please Enter Again");
-            System.exit(0);
+            LZWOptions options = LZWOptions.legacy();
+            if (preprocessing && blockSize == 0 && !columnar) {
+                blockSize = LZWBlockCompressor.DEFAULT_BLOCK_SIZE;
+            }
+            if (maxBits != 0 || adaptiveReset || rangeCoded || blockSize != 0 || presetDictionary != null
+                    || columnar || args[0].equals("-A")) {
+                // a preset dictionary needs room for the new entries
+                int defaultBits = presetDictionary != null ? 16 : LZWOptions.LEGACY_BITS;
+                options = new LZWOptions(maxBits != 0 ? maxBits : defaultBits, true);
+                options.setAdaptiveReset(adaptiveReset);
+                options.setRangeCoded(rangeCoded);
+                options.setPreprocessing(preprocessing);
+                options.setPresetDictionary(presetDictionary);
+            }
+            options.setOffHeapMegabytes(offHeapMegabytes);
+            options.setLevel(level);
+            if (args[0].equals("-c")) {
+                // compress file
+                if (columnar) {
+                    lzw.compressColumns(inputFile, outputFile, options);
+                } else if (blockSize != 0) {
+                    lzw.compressBlocks(inputFile, outputFile, options, blockSize);
+                } else {
+                    lzw.compress(inputFile, outputFile, options);
+                }
+            } else if (args[0].equals("-d")) {
+                // decompress file
+                lzw.decompress(inputFile, outputFile);
+            } else if (args[0].equals("-r")) {
+                // decompress the blocks of the range only
+                try (LZWSeekableReader reader = new LZWSeekableReader(inputFile,
+                        LZWSeekableReader.DEFAULT_CACHE_BLOCKS, presetDictionary);
+                     OutputStream outputStream = new FileOutputStream(outputFile)) {
+                    outputStream.write(reader.readRange(rangeOffset, rangeLength));
+                }
+            } else if (args[0].equals("-K")) {
+                // decompress the stream of the column only
+                try (OutputStream outputStream = new FileOutputStream(outputFile)) {
+                    outputStream.write(LZWColumnarCompressor.readColumn(inputFile, columnName, presetDictionary));
+                }
+            } else if (args[0].equals("-s")) {
+                // search the compressed file and write the offset of every match
+                try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(outputFile)))) {
+                    new LZWSearcher(pattern.getBytes(StandardCharsets.UTF_8))
+                            .search(inputFile, presetDictionary, writer::println);
+                }
+            } else if (args[0].equals("-A")) {
+                // compress many files into one archive
+                lzw.createArchive(inputFile, outputFile, options);
+            } else if (args[0].equals("-X")) {
+                // extract the archive
+                lzw.extractArchive(inputFile, outputFile);
+            } else if (args[0].equals("-t")) {
+                // train a dictionary on the sample
+                try (InputStream inputStream = new FileInputStream(inputFile);
+                     DataOutputStream outputStream = new DataOutputStream(
+                             new BufferedOutputStream(new FileOutputStream(outputFile)))) {
+                    LZWPresetDictionary.train(inputStream, dictionaryId, dictionaryVersion, dictionaryEntries)
+                            .write(outputStream);
+                }
+            } else {
+                printError();
+            }
+            // check the detail bytes
+            if (verbose) {
+                File infile = new File(inputFile);
+                File outfile = new File(outputFile);
+                System.out.printf("bytes read = %d , bytes written = %d", infile.length(), outfile.length());
+            }
+            // check the stage stalls
+            if (pipeline != null && pipeline.hasRun()) {
+                System.out.println(pipeline.getStallReport());
+            }
+        } catch (IOException | IllegalArgumentException | ArithmeticException e) {
+            printError();
         }
     }
+
+    /**
+     * Print the error message and exit.
+     */
+    private static void printError() {
+        System.out.println("Error Please Enter Again");
+        System.exit(0);
+    }
 }
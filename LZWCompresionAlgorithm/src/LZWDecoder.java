@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * LZWDecoder reads the codes written by LZWEncoder from an LZWCodeReader and expands them back into bytes. The
+ * decoder adds every entry one code later than the encoder, so the code width is computed from the next code.
+ */
+public class LZWDecoder {
+    /**
+     * Size of the output buffer used by decodeTo
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    /**
+     * Input of the codes
+     */
+    private LZWCodeReader in;
+    /**
+     * Codec options
+     */
+    private LZWOptions options;
+    /**
+     * Dictionary of the strings seen so far
+     */
+    private LZWDecoderDictionary dictionary;
+    /**
+     * The former code, -1 at the start and after a CLEAR code
+     */
+    private int formerCode = -1;
+    /**
+     * Entry that did not fit in the array given to read
+     */
+    private byte[] pending = new byte[0];
+    /**
+     * Index of the next pending byte
+     */
+    private int pendingPosition;
+    /**
+     * Number of pending bytes
+     */
+    private int pendingSize;
+
+    /**
+     * Constructor method
+     * @param in input of the codes
+     * @param options codec options
+     */
+    public LZWDecoder(LZWCodeReader in, LZWOptions options) {
+        this(in, options, -1);
+    }
+
+    /**
+     * Constructor method for output of a known length, which sizes the dictionary
+     * @param in input of the codes
+     * @param options codec options
+     * @param outputLength number of bytes to decode, -1 when unknown
+     */
+    public LZWDecoder(LZWCodeReader in, LZWOptions options, long outputLength) {
+        this.in = in;
+        this.options = options;
+        dictionary = new LZWDecoderDictionary(options.getMaxCodes(), options.getFirstCode(),
+                options.getTableCodes(outputLength));
+        if (options.getPresetDictionary() != null) {
+            options.getPresetDictionary().addTo(dictionary);
+        }
+    }
+
+    /**
+     * Get the max number of bytes the next call of decode may write
+     * @return max number of bytes of the next entry
+     */
+    public int getMaxEntryLength() {
+        // an unknown code is the former string plus one byte
+        return dictionary.getMaxLength() + 1;
+    }
+
+    /**
+     * Decode the next code into the array, which must have room for getMaxEntryLength() bytes
+     * @param output output array
+     * @param offset index of the first byte to write
+     * @return number of bytes written, or -1 at the end of the codes
+     * @throws IOException exception
+     */
+    public int decode(byte[] output, int offset) throws IOException {
+        while (true) {
+            int largestCode = formerCode == -1 ? dictionary.getNextCode() - 1 : dictionary.getNextCode();
+            int code = in.readBits(options.getCodeWidth(largestCode));
+            if (code == -1) {
+                return -1;
+            }
+            if (!options.isLegacy() && code == LZWOptions.CLEAR_CODE) {
+                dictionary.reset();
+                formerCode = -1;
+                continue;
+            }
+            // the first code after a reset is always in the dictionary
+            if (formerCode == -1) {
+                if (!dictionary.contains(code)) {
+                    throw new IOException("Corrupt LZW codes");
+                }
+                formerCode = code;
+                return dictionary.expand(code, output, offset);
+            }
+            // the legacy format resets the dictionary when it is full, otherwise wait for the CLEAR code
+            if (options.isLegacy() && dictionary.isFull()) {
+                dictionary.reset();
+            }
+            int length;
+            if (!dictionary.contains(code)) {
+                // if dictionary does not contain the code, it is the former string plus its first byte, which only
+                // the next code can be
+                if (code != dictionary.getNextCode() || dictionary.isFull() || !dictionary.contains(formerCode)) {
+                    throw new IOException("Corrupt LZW codes");
+                }
+                length = dictionary.expand(formerCode, output, offset);
+                output[offset + length] = output[offset];
+                length++;
+            } else {
+                length = dictionary.expand(code, output, offset);
+            }
+            // the new entry is the former string plus the first byte of the code
+            if (!dictionary.isFull()) {
+                dictionary.add(formerCode, output[offset] & 0xFF);
+            }
+            formerCode = code;
+            return length;
+        }
+    }
+
+    /**
+     * Decode up to len bytes into the array. An entry that does not fit is kept and returned by the next call.
+     * @param b output array
+     * @param off index of the first byte to write
+     * @param len max number of bytes to write
+     * @return number of bytes written, or -1 at the end of the codes
+     * @throws IOException exception
+     */
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = 0;
+        while (count < len) {
+            if (pendingPosition < pendingSize) {
+                int n = Math.min(len - count, pendingSize - pendingPosition);
+                System.arraycopy(pending, pendingPosition, b, off + count, n);
+                pendingPosition += n;
+                count += n;
+                continue;
+            }
+            int length;
+            if (getMaxEntryLength() <= len - count) {
+                // decode straight into the array when the entry surely fits
+                length = decode(b, off + count);
+                if (length == -1) {
+                    break;
+                }
+                count += length;
+            } else {
+                if (pending.length < getMaxEntryLength()) {
+                    pending = new byte[getMaxEntryLength()];
+                }
+                length = decode(pending, 0);
+                if (length == -1) {
+                    break;
+                }
+                pendingPosition = 0;
+                pendingSize = length;
+            }
+        }
+        return count == 0 && len > 0 ? -1 : count;
+    }
+
+    /**
+     * Decode all the codes and write the bytes to the output stream
+     * @param outputStream output stream
+     * @throws IOException exception
+     */
+    public void decodeTo(OutputStream outputStream) throws IOException {
+        // every entry is expanded straight into the output buffer
+        byte[] output = new byte[OUTPUT_BUFFER_SIZE];
+        int position = 0;
+        while (true) {
+            // flush the buffer if the longest entry may not fit
+            if (position + getMaxEntryLength() > output.length) {
+                outputStream.write(output, 0, position);
+                position = 0;
+                if (getMaxEntryLength() > output.length) {
+                    output = new byte[Math.max(getMaxEntryLength(), output.length * 2)];
+                }
+            }
+            int length = decode(output, position);
+            if (length == -1) {
+                break;
+            }
+            position += length;
+        }
+        outputStream.write(output, 0, position);
+    }
+}
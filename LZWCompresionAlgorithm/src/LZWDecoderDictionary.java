@@ -0,0 +1,191 @@
+import java.util.Arrays;
+
+/**
+ * Dictionary used by the LZW decompressor. Every entry is stored as its prefix code, its last byte and its length in
+ * three parallel int arrays, so a new entry costs three array writes instead of a string concatenation. The arrays
+ * start at the codes the data can reach and double when more are needed.
+ */
+public class LZWDecoderDictionary {
+    /**
+     * Prefix code of each entry, -1 for single bytes
+     */
+    private int[] prefix;
+    /**
+     * Last byte of each entry
+     */
+    private int[] suffix;
+    /**
+     * Number of bytes of each entry
+     */
+    private int[] length;
+    /**
+     * Max number of codes in the dictionary
+     */
+    private int capacity;
+    /**
+     * First code assigned to a multi-byte entry
+     */
+    private int firstCode;
+    /**
+     * Next code to be assigned
+     */
+    private int nextCode;
+    /**
+     * Length of the longest entry
+     */
+    private int maxLength;
+    /**
+     * Next code after reset
+     */
+    private int keptCode;
+    /**
+     * Length of the longest entry after reset
+     */
+    private int keptMaxLength;
+
+    /**
+     * Constructor method
+     * @param capacity max number of codes in the dictionary
+     * @param firstCode first code assigned to a multi-byte entry, codes below it are single bytes or reserved
+     */
+    public LZWDecoderDictionary(int capacity, int firstCode) {
+        this(capacity, firstCode, capacity);
+    }
+
+    /**
+     * Constructor method for data that never reaches every code
+     * @param capacity max number of codes in the dictionary
+     * @param firstCode first code assigned to a multi-byte entry, codes below it are single bytes or reserved
+     * @param tableCodes number of codes the arrays start with, see LZWOptions.getTableCodes
+     */
+    public LZWDecoderDictionary(int capacity, int firstCode, int tableCodes) {
+        this.capacity = capacity;
+        this.firstCode = firstCode;
+        int size = Math.min(capacity, Math.max(tableCodes, firstCode + 1));
+        prefix = new int[size];
+        suffix = new int[size];
+        length = new int[size];
+        for (int i = 0; i < 256; i++) {
+            prefix[i] = -1;
+            suffix[i] = i;
+            length[i] = 1;
+        }
+        nextCode = firstCode;
+        maxLength = 1;
+        keptCode = firstCode;
+        keptMaxLength = 1;
+    }
+
+    /**
+     * Add the entry made of the prefix code followed by the byte
+     * @param prefixCode prefix code
+     * @param b last byte, 0 to 255
+     * @return code assigned to the entry
+     */
+    public int add(int prefixCode, int b) {
+        if (nextCode == prefix.length) {
+            int size = (int) Math.min(capacity, prefix.length * 2L);
+            prefix = Arrays.copyOf(prefix, size);
+            suffix = Arrays.copyOf(suffix, size);
+            length = Arrays.copyOf(length, size);
+        }
+        prefix[nextCode] = prefixCode;
+        suffix[nextCode] = b;
+        length[nextCode] = length[prefixCode] + 1;
+        maxLength = Math.max(maxLength, length[nextCode]);
+        return nextCode++;
+    }
+
+    /**
+     * Check whether the code is in the dictionary
+     * @param code code
+     * @return whether the code is in the dictionary
+     */
+    public boolean contains(int code) {
+        return (code >= 0 && code < 256) || (code >= firstCode && code < nextCode);
+    }
+
+    /**
+     * Get the prefix code of the entry
+     * @param code code in the dictionary
+     * @return prefix code, -1 for a single byte
+     */
+    public int getPrefix(int code) {
+        return prefix[code];
+    }
+
+    /**
+     * Get the last byte of the entry
+     * @param code code in the dictionary
+     * @return last byte
+     */
+    public int getSuffix(int code) {
+        return suffix[code];
+    }
+
+    /**
+     * Get the number of bytes of the entry
+     * @param code code in the dictionary
+     * @return number of bytes of the entry
+     */
+    public int getLength(int code) {
+        return length[code];
+    }
+
+    /**
+     * Write the bytes of the entry to the array, the array must have room for getLength(code) bytes
+     * @param code code in the dictionary
+     * @param output output array
+     * @param offset index of the first byte to write
+     * @return number of bytes written
+     */
+    public int expand(int code, byte[] output, int offset) {
+        int len = length[code];
+        // walk from the last byte back to the first one
+        for (int i = offset + len - 1; i >= offset; i--) {
+            output[i] = (byte) suffix[code];
+            code = prefix[code];
+        }
+        return len;
+    }
+
+    /**
+     * Check whether all the codes are used
+     * @return whether the dictionary is full
+     */
+    public boolean isFull() {
+        return nextCode >= capacity;
+    }
+
+    /**
+     * Get the next code to be assigned
+     * @return next code
+     */
+    public int getNextCode() {
+        return nextCode;
+    }
+
+    /**
+     * Get the length of the longest entry
+     * @return length of the longest entry
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Keep the current entries across reset, used for a preset dictionary
+     */
+    public void keepEntries() {
+        keptCode = nextCode;
+        keptMaxLength = maxLength;
+    }
+
+    /**
+     * Remove all the multi-byte entries except the kept ones
+     */
+    public void reset() {
+        nextCode = keptCode;
+        maxLength = keptMaxLength;
+    }
+}
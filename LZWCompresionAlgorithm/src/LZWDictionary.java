@@ -0,0 +1,50 @@
+/**
+ * Dictionary used by the LZW compressor, keyed on the pair (prefix code, next byte). The codes below the first code
+ * are single bytes or reserved and are never stored. LZWEncoderDictionary keeps the entries on the heap and
+ * LZWOffHeapDictionary in native memory.
+ */
+public interface LZWDictionary {
+    /**
+     * Code returned when the entry is not found
+     */
+    int NOT_FOUND = -1;
+
+    /**
+     * Find the code of the entry (prefix, b)
+     * @param prefix prefix code
+     * @param b next byte, 0 to 255
+     * @return code of the entry or NOT_FOUND
+     */
+    int find(int prefix, int b);
+
+    /**
+     * Add the entry (prefix, b) with the next free code. An entry already in the dictionary keeps its former code
+     * and the new code is used up all the same, as the decoder does.
+     * @param prefix prefix code
+     * @param b next byte, 0 to 255
+     * @return code assigned to the entry
+     */
+    int add(int prefix, int b);
+
+    /**
+     * Check whether all the codes are used
+     * @return whether the dictionary is full
+     */
+    boolean isFull();
+
+    /**
+     * Get the next code to be assigned
+     * @return next code
+     */
+    int getNextCode();
+
+    /**
+     * Keep the current entries across reset, used for a preset dictionary
+     */
+    void keepEntries();
+
+    /**
+     * Remove all the multi-byte entries except the kept ones
+     */
+    void reset();
+}
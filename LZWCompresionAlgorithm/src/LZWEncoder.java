@@ -0,0 +1,374 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * LZWEncoder turns a stream of bytes into LZW codes and writes them to an LZWCodeWriter. The encoder keeps the
+ * current string as a single code, so nothing is allocated per input byte. At the flexible level the input is kept
+ * in a window instead and every phrase may stop short of the longest match when the next phrase then reaches
+ * further. The dictionary is updated exactly as the decoder does it, the former phrase plus the first byte of the
+ * next one, even when that string is already in the dictionary, so any decoder reads the codes.
+ */
+public class LZWEncoder {
+    /**
+     * Number of input bytes in a slot of the ratio window
+     */
+    private static final int SLOT_BYTES = 1 << 10;
+    /**
+     * Number of slots in the ratio window
+     */
+    private static final int WINDOW_SLOTS = 4;
+    /**
+     * The dictionary is cleared when the window ratio falls below this part of the best window ratio
+     */
+    private static final double DEGRADE_FACTOR = 0.95;
+    /**
+     * Number of bytes of the window of the flexible level
+     */
+    private static final int WINDOW_SIZE = 1 << 17;
+    /**
+     * Number of bytes the flexible level keeps ahead of the parse until the input ends, longer matches are cut
+     */
+    private static final int LOOKAHEAD = 1 << 16;
+    /**
+     * Number of shorter phrases tried by the flexible level besides the longest match
+     */
+    private static final int MAX_BACKTRACK = 16;
+    /**
+     * Number of bytes a shorter phrase must reach further than the longest match, since its entry in the dictionary
+     * is a copy of a prefix of the longest match and so wastes a code
+     */
+    private static final int MIN_GAIN = 2;
+    /**
+     * Output of the codes
+     */
+    private LZWCodeWriter out;
+    /**
+     * Codec options
+     */
+    private LZWOptions options;
+    /**
+     * Dictionary of the strings seen so far
+     */
+    private LZWDictionary dictionary;
+    /**
+     * Code of the current string, -1 when the string is empty
+     */
+    private int prefix = -1;
+    /**
+     * Number of bytes read so far
+     */
+    private long bytesRead;
+    /**
+     * Bytes read before the current slot of the ratio window
+     */
+    private long slotStartBytes;
+    /**
+     * Bits written before the current slot of the ratio window
+     */
+    private long slotStartBits;
+    /**
+     * Bytes read in each slot of the ratio window
+     */
+    private long[] slotBytes = new long[WINDOW_SLOTS];
+    /**
+     * Bits written in each slot of the ratio window
+     */
+    private long[] slotBits = new long[WINDOW_SLOTS];
+    /**
+     * Number of closed slots in the ratio window
+     */
+    private int slotCount;
+    /**
+     * Index of the slot to be replaced next
+     */
+    private int slotIndex;
+    /**
+     * Bytes read in the ratio window
+     */
+    private long windowBytes;
+    /**
+     * Bits written in the ratio window
+     */
+    private long windowBits;
+    /**
+     * Best ratio seen since the dictionary got full
+     */
+    private double bestRatio;
+    /**
+     * Input not parsed yet at the flexible level, null at the greedy level
+     */
+    private byte[] window;
+    /**
+     * Index of the next byte to parse in the window
+     */
+    private int windowPosition;
+    /**
+     * Number of bytes in the window
+     */
+    private int windowLimit;
+    /**
+     * Codes of the prefixes of the longest match, the code of the first k bytes at k-1
+     */
+    private int[] matchCodes;
+
+    /**
+     * Constructor method
+     * @param out output of the codes
+     * @param options codec options
+     */
+    public LZWEncoder(LZWCodeWriter out, LZWOptions options) {
+        this(out, options, -1);
+    }
+
+    /**
+     * Constructor method for input of a known length, which sizes the dictionary
+     * @param out output of the codes
+     * @param options codec options
+     * @param inputLength number of bytes to encode, -1 when unknown
+     */
+    public LZWEncoder(LZWCodeWriter out, LZWOptions options, long inputLength) {
+        this.out = out;
+        this.options = options;
+        dictionary = options.newEncoderDictionary(inputLength);
+        if (options.getLevel() == LZWOptions.LEVEL_FLEXIBLE) {
+            window = new byte[WINDOW_SIZE];
+            matchCodes = new int[LOOKAHEAD];
+        }
+    }
+
+    /**
+     * Encode one byte
+     * @param b byte, only the low 8 bits are used
+     * @throws IOException exception
+     */
+    public void write(int b) throws IOException {
+        if (window != null) {
+            if (windowLimit == window.length) {
+                // keep the lookahead and move it to the start of the window
+                System.arraycopy(window, windowPosition, window, 0, windowLimit - windowPosition);
+                windowLimit -= windowPosition;
+                windowPosition = 0;
+            }
+            window[windowLimit++] = (byte) b;
+            while (windowLimit - windowPosition > LOOKAHEAD) {
+                parsePhrase();
+            }
+            return;
+        }
+        b &= 0xFF;
+        bytesRead++;
+        if (prefix == -1) {
+            prefix = b;
+            return;
+        }
+        // if dictionary contains the string plus the byte
+        int code = dictionary.find(prefix, b);
+        if (code != LZWDictionary.NOT_FOUND) {
+            prefix = code;
+            return;
+        }
+        endPhrase(prefix, b);
+        prefix = b;
+    }
+
+    /**
+     * Write the code of a phrase and add the phrase plus the first byte of the next phrase to the dictionary
+     * @param code code of the phrase
+     * @param b first byte of the next phrase
+     * @throws IOException exception
+     */
+    private void endPhrase(int code, int b) throws IOException {
+        writeCode(code);
+        if (!dictionary.isFull()) {
+            dictionary.add(code, b);
+            // reset the dictionary when exceed the limit, only the headered format tells the decoder
+            if (dictionary.isFull()) {
+                if (options.isLegacy()) {
+                    dictionary.reset();
+                } else if (options.isAdaptiveReset()) {
+                    startWatching();
+                } else {
+                    clear();
+                }
+            }
+        } else if (isRatioDegraded()) {
+            clear();
+        }
+    }
+
+    /**
+     * Parse one phrase at the window position. Of the longest match and the few prefixes below it, the phrase is the
+     * one followed by the longest reach of the next match, the longest one on a tie. A shorter phrase must gain at
+     * least MIN_GAIN bytes and be followed by a match longer than the longest match, otherwise a periodic input keeps
+     * picking the same short phrase and the dictionary stops growing.
+     * @throws IOException exception
+     */
+    private void parsePhrase() throws IOException {
+        int length = 1;
+        matchCodes[0] = window[windowPosition] & 0xFF;
+        // only the end of the input is reached, before it the window keeps more than matchCodes.length bytes
+        int maxLength = Math.min(windowLimit - windowPosition, matchCodes.length);
+        while (length < maxLength) {
+            int code = dictionary.find(matchCodes[length - 1], window[windowPosition + length] & 0xFF);
+            if (code == LZWDictionary.NOT_FOUND) {
+                break;
+            }
+            matchCodes[length++] = code;
+        }
+        if (windowPosition + length == windowLimit) {
+            // the last phrase of the input
+            writeCode(matchCodes[length - 1]);
+            windowPosition = windowLimit;
+            bytesRead += length;
+            return;
+        }
+        int best = length;
+        int bestReach = length + getMatchLength(windowPosition + length) + MIN_GAIN - 1;
+        for (int k = length - 1; k >= Math.max(1, length - MAX_BACKTRACK); k--) {
+            int nextLength = getMatchLength(windowPosition + k);
+            if (nextLength > length && k + nextLength > bestReach) {
+                best = k;
+                bestReach = k + nextLength;
+            }
+        }
+        windowPosition += best;
+        bytesRead += best;
+        endPhrase(matchCodes[best - 1], window[windowPosition] & 0xFF);
+    }
+
+    /**
+     * Get the length of the longest match in the dictionary at the index of the window
+     * @param index index in the window
+     * @return number of bytes
+     */
+    private int getMatchLength(int index) {
+        int code = window[index] & 0xFF;
+        int length = 1;
+        while (index + length < windowLimit) {
+            code = dictionary.find(code, window[index + length] & 0xFF);
+            if (code == LZWDictionary.NOT_FOUND) {
+                break;
+            }
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Encode the bytes of the array
+     * @param b array
+     * @param offset index of the first byte
+     * @param length number of bytes
+     * @throws IOException exception
+     */
+    public void write(byte[] b, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            write(b[i]);
+        }
+    }
+
+    /**
+     * Encode the bytes left in the buffer
+     * @param buffer buffer, its position is moved to its limit
+     * @throws IOException exception
+     */
+    public void write(ByteBuffer buffer) throws IOException {
+        int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++) {
+            write(buffer.get(i));
+        }
+        buffer.position(limit);
+    }
+
+    /**
+     * Write the code of the last string. The bit stream is not flushed.
+     * @throws IOException exception
+     */
+    public void finish() throws IOException {
+        while (window != null && windowPosition < windowLimit) {
+            parsePhrase();
+        }
+        if (prefix != -1) {
+            writeCode(prefix);
+            prefix = -1;
+        }
+    }
+
+    /**
+     * Give the dictionary back to the options for the next encoder. The encoder is not used after it.
+     */
+    public void release() {
+        if (dictionary != null) {
+            options.releaseEncoderDictionary(dictionary);
+            dictionary = null;
+        }
+    }
+
+    /**
+     * Write the CLEAR code and reset the dictionary
+     * @throws IOException exception
+     */
+    private void clear() throws IOException {
+        writeCode(LZWOptions.CLEAR_CODE);
+        dictionary.reset();
+    }
+
+    /**
+     * Start watching the compression ratio of the full dictionary
+     */
+    private void startWatching() {
+        slotStartBytes = bytesRead;
+        slotStartBits = out.getBitsWritten();
+        slotCount = 0;
+        slotIndex = 0;
+        windowBytes = 0;
+        windowBits = 0;
+        bestRatio = 0;
+    }
+
+    /**
+     * Close the current slot when it is complete and check whether the ratio of the window fell below the best one.
+     * A window that grows the data also clears the dictionary, since a dictionary learned from incompressible data
+     * never gets worse but never helps either.
+     * @return whether the dictionary should be cleared
+     */
+    private boolean isRatioDegraded() {
+        if (bytesRead - slotStartBytes < SLOT_BYTES) {
+            return false;
+        }
+        long bitsWritten = out.getBitsWritten();
+        // replace the oldest slot of the window
+        if (slotCount == WINDOW_SLOTS) {
+            windowBytes -= slotBytes[slotIndex];
+            windowBits -= slotBits[slotIndex];
+        } else {
+            slotCount++;
+        }
+        slotBytes[slotIndex] = bytesRead - slotStartBytes;
+        slotBits[slotIndex] = bitsWritten - slotStartBits;
+        windowBytes += slotBytes[slotIndex];
+        windowBits += slotBits[slotIndex];
+        slotIndex = (slotIndex + 1) % WINDOW_SLOTS;
+        slotStartBytes = bytesRead;
+        slotStartBits = bitsWritten;
+
+        if (slotCount < WINDOW_SLOTS) {
+            return false;
+        }
+        double ratio = (double) windowBytes * 8 / windowBits;
+        if (ratio > bestRatio) {
+            bestRatio = ratio;
+            return false;
+        }
+        return ratio < 1 || ratio < bestRatio * DEGRADE_FACTOR;
+    }
+
+    /**
+     * Write a code with the width of the largest code the decoder may see
+     * @param code code
+     * @throws IOException exception
+     */
+    private void writeCode(int code) throws IOException {
+        out.writeBits(code, options.getCodeWidth(dictionary.getNextCode() - 1));
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Dictionary used by the LZW compressor. Every entry is keyed on the pair (prefix code, next byte), so the compressor
+ * never has to build or hash strings. The entries are kept in an IntIntMap from the packed key to the code, sized for
+ * the codes the data can reach so that it never grows.
+ */
+public class LZWEncoderDictionary implements LZWDictionary {
+    /**
+     * Code of every entry by its packed key
+     */
+    private IntIntMap entries;
+    /**
+     * Max number of codes in the dictionary
+     */
+    private int capacity;
+    /**
+     * Number of codes the table of the entries is sized for
+     */
+    private int tableCodes;
+    /**
+     * Next code to be assigned
+     */
+    private int nextCode;
+    /**
+     * Entries restored by reset, null to empty the dictionary
+     */
+    private IntIntMap keptEntries;
+    /**
+     * Next code after reset
+     */
+    private int keptCode;
+
+    /**
+     * Constructor method
+     * @param capacity max number of codes in the dictionary
+     * @param firstCode first code assigned to a multi-byte entry, codes below it are single bytes or reserved
+     */
+    public LZWEncoderDictionary(int capacity, int firstCode) {
+        this(capacity, firstCode, capacity);
+    }
+
+    /**
+     * Constructor method for data that never reaches every code, the table grows if it does all the same
+     * @param capacity max number of codes in the dictionary
+     * @param firstCode first code assigned to a multi-byte entry, codes below it are single bytes or reserved
+     * @param tableCodes number of codes the table is sized for, see LZWOptions.getTableCodes
+     */
+    public LZWEncoderDictionary(int capacity, int firstCode, int tableCodes) {
+        this.capacity = capacity;
+        this.tableCodes = Math.min(capacity, tableCodes);
+        entries = newEntries(this.tableCodes);
+        keptCode = firstCode;
+        reset();
+    }
+
+    /**
+     * Constructor method for a dictionary that starts with entries shared with other dictionaries, which reset
+     * restores by copying their table
+     * @param capacity max number of codes in the dictionary
+     * @param keptEntries entries made by newEntries for tableCodes, never changed
+     * @param keptCode next code after the kept entries
+     * @param tableCodes number of codes the table is sized for, see LZWOptions.getTableCodes
+     */
+    public LZWEncoderDictionary(int capacity, IntIntMap keptEntries, int keptCode, int tableCodes) {
+        this.capacity = capacity;
+        this.tableCodes = Math.min(capacity, tableCodes);
+        entries = newEntries(this.tableCodes);
+        this.keptEntries = keptEntries;
+        this.keptCode = keptCode;
+        reset();
+    }
+
+    /**
+     * Create the empty map of the entries of a dictionary
+     * @param tableCodes number of codes the map is sized for
+     * @return empty map
+     */
+    public static IntIntMap newEntries(int tableCodes) {
+        // keep the load factor at or below 0.5 so probe sequences stay short
+        return new IntIntMap(Integer.highestOneBit(Math.max(tableCodes, 2) - 1) << 2);
+    }
+
+    /**
+     * Find the code of the entry (prefix, b)
+     * @param prefix prefix code
+     * @param b next byte, 0 to 255
+     * @return code of the entry or NOT_FOUND
+     */
+    @Override
+    public int find(int prefix, int b) {
+        return entries.getOrDefault((prefix << 8) | b, NOT_FOUND);
+    }
+
+    /**
+     * Add the entry (prefix, b) with the next free code. An entry already in the dictionary keeps its former code
+     * and the new code is used up all the same, as the decoder does.
+     * @param prefix prefix code
+     * @param b next byte, 0 to 255
+     * @return code assigned to the entry
+     */
+    @Override
+    public int add(int prefix, int b) {
+        entries.putIfAbsent((prefix << 8) | b, nextCode);
+        return nextCode++;
+    }
+
+    /**
+     * Check whether all the codes are used
+     * @return whether the dictionary is full
+     */
+    @Override
+    public boolean isFull() {
+        return nextCode >= capacity;
+    }
+
+    /**
+     * Get the next code to be assigned
+     * @return next code
+     */
+    @Override
+    public int getNextCode() {
+        return nextCode;
+    }
+
+    /**
+     * Keep the current entries across reset, used for a preset dictionary
+     */
+    @Override
+    public void keepEntries() {
+        keptEntries = newEntries(tableCodes);
+        keptEntries.putAll(entries);
+        keptCode = nextCode;
+    }
+
+    /**
+     * Remove all the multi-byte entries except the kept ones
+     */
+    @Override
+    public void reset() {
+        entries.clear();
+        if (keptEntries != null) {
+            entries.putAll(keptEntries);
+        }
+        nextCode = keptCode;
+    }
+}
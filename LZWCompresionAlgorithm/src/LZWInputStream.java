@@ -0,0 +1,135 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * LZWInputStream decompresses the codes read from the underlying stream, which holds a legacy file or the stream
+ * format written by LZWOutputStream and LZWCompression.compress. Bytes are decoded as they are read, so memory use is
+ * bounded by the dictionary whatever the length of the stream.
+ */
+public class LZWInputStream extends FilterInputStream {
+    /**
+     * Decoder
+     */
+    private LZWDecoder decoder;
+    /**
+     * Array used by the single byte read
+     */
+    private byte[] single = new byte[1];
+
+    /**
+     * Constructor method, the header is read right away
+     * @param in underlying input stream
+     * @throws IOException exception
+     */
+    public LZWInputStream(InputStream in) throws IOException {
+        this(in, null);
+    }
+
+    /**
+     * Constructor method, the header is read right away
+     * @param in underlying input stream
+     * @param presetDictionary dictionary named by the header, null for none
+     * @throws IOException exception
+     */
+    public LZWInputStream(InputStream in, LZWPresetDictionary presetDictionary) throws IOException {
+        super(in.markSupported() ? in : new BufferedInputStream(in));
+        LZWOptions options;
+        int format = LZWCompression.readFormat(this.in);
+        if (format == LZWCompression.FORMAT_LEGACY) {
+            options = LZWOptions.legacy();
+        } else if (format == LZWCompression.FORMAT_STREAM) {
+            options = LZWOptions.readHeader(new DataInputStream(this.in), presetDictionary);
+        } else {
+            throw new IOException("Only the stream format can be read as a stream");
+        }
+        decoder = new LZWDecoder(options.newCodeReader(this.in), options);
+    }
+
+    /**
+     * Read one decompressed byte
+     * @return the byte, or -1 at the end of the stream
+     * @throws IOException exception
+     */
+    @Override
+    public int read() throws IOException {
+        int n = read(single, 0, 1);
+        return n == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    /**
+     * Read decompressed bytes into the array
+     * @param b array
+     * @param off index of the first byte to write
+     * @param len max number of bytes
+     * @return number of bytes read, or -1 at the end of the stream
+     * @throws IOException exception
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        return decoder.read(b, off, len);
+    }
+
+    /**
+     * Skip decompressed bytes
+     * @param n number of bytes, nothing is skipped if it is not positive
+     * @return number of bytes skipped
+     * @throws IOException exception
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int count = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (count == -1) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    /**
+     * The number of bytes left is not known without decoding them
+     * @return 0
+     */
+    @Override
+    public int available() {
+        return 0;
+    }
+
+    /**
+     * Mark is not supported
+     * @return false
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Mark is not supported, nothing is done
+     * @param readlimit ignored
+     */
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    /**
+     * Mark is not supported
+     * @throws IOException always
+     */
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
@@ -0,0 +1,209 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Dictionary used by the LZW compressor that keeps its entries in native memory, so a dictionary of wide codes puts
+ * no large array on the heap for the garbage collector to copy. The table is a direct buffer of fixed 8-byte slots,
+ * the packed key (prefix code, next byte) and then the code, probed linearly like LZWEncoderDictionary. The size of
+ * the table is given in megabytes and must leave at least two slots per code, more memory makes the probes shorter.
+ */
+public class LZWOffHeapDictionary implements LZWDictionary {
+    /**
+     * Number of bytes of a slot
+     */
+    public static final int SLOT_BYTES = 8;
+    /**
+     * Max number of megabytes of the table, a direct buffer is indexed by an int
+     */
+    public static final int MAX_MEGABYTES = 1024;
+    /**
+     * Empty slots copied over the table by reset, every byte -1, a table is a whole number of them
+     */
+    private static final byte[] EMPTY_SLOTS = newEmptySlots(1 << 16);
+    /**
+     * Table of slots, slot i keeps the packed key at 8*i and the code at 8*i+4
+     */
+    private ByteBuffer table;
+    /**
+     * Mask used to wrap the slot index
+     */
+    private int mask;
+    /**
+     * Shift used by the hash function
+     */
+    private int shift;
+    /**
+     * Max number of codes in the dictionary
+     */
+    private int capacity;
+    /**
+     * Next code to be assigned
+     */
+    private int nextCode;
+    /**
+     * Slot index of every kept entry, null to empty the table on reset
+     */
+    private int[] keptSlots;
+    /**
+     * Key and code of every kept entry as the 8 bytes of its slot
+     */
+    private long[] keptValues;
+    /**
+     * Next code after reset
+     */
+    private int keptCode;
+
+    /**
+     * Constructor method
+     * @param capacity max number of codes in the dictionary
+     * @param firstCode first code assigned to a multi-byte entry, codes below it are single bytes or reserved
+     * @param megabytes size of the table in megabytes, see getMinMegabytes
+     */
+    public LZWOffHeapDictionary(int capacity, int firstCode, int megabytes) {
+        if (megabytes < getMinMegabytes(capacity) || megabytes > MAX_MEGABYTES) {
+            throw new IllegalArgumentException("The dictionary of " + capacity + " codes needs "
+                    + getMinMegabytes(capacity) + " to " + MAX_MEGABYTES + " megabytes");
+        }
+        this.capacity = capacity;
+        int slots = Integer.highestOneBit((int) ((long) megabytes * (1 << 20) / SLOT_BYTES));
+        mask = slots - 1;
+        shift = 32 - Integer.numberOfTrailingZeros(slots);
+        table = ByteBuffer.allocateDirect(slots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        keptCode = firstCode;
+        reset();
+    }
+
+    /**
+     * Get the smallest table that keeps the load factor at or below 0.5
+     * @param capacity max number of codes in the dictionary
+     * @return number of megabytes
+     */
+    public static int getMinMegabytes(int capacity) {
+        long bytes = (long) Integer.highestOneBit(Math.max(capacity, 2) - 1) * 4 * SLOT_BYTES;
+        return (int) Math.max(1, bytes >> 20);
+    }
+
+    /**
+     * Find the code of the entry (prefix, b)
+     * @param prefix prefix code
+     * @param b next byte, 0 to 255
+     * @return code of the entry or NOT_FOUND
+     */
+    @Override
+    public int find(int prefix, int b) {
+        int key = (prefix << 8) | b;
+        int slot = hash(key);
+        while (true) {
+            int code = table.getInt(slot * SLOT_BYTES + 4);
+            if (code == NOT_FOUND) {
+                return NOT_FOUND;
+            }
+            if (table.getInt(slot * SLOT_BYTES) == key) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Add the entry (prefix, b) with the next free code. An entry already in the dictionary keeps its former code
+     * and the new code is used up all the same, as the decoder does.
+     * @param prefix prefix code
+     * @param b next byte, 0 to 255
+     * @return code assigned to the entry
+     */
+    @Override
+    public int add(int prefix, int b) {
+        int key = (prefix << 8) | b;
+        int slot = hash(key);
+        while (table.getInt(slot * SLOT_BYTES + 4) != NOT_FOUND) {
+            slot = (slot + 1) & mask;
+        }
+        table.putInt(slot * SLOT_BYTES, key);
+        table.putInt(slot * SLOT_BYTES + 4, nextCode);
+        return nextCode++;
+    }
+
+    /**
+     * Check whether all the codes are used
+     * @return whether the dictionary is full
+     */
+    @Override
+    public boolean isFull() {
+        return nextCode >= capacity;
+    }
+
+    /**
+     * Get the next code to be assigned
+     * @return next code
+     */
+    @Override
+    public int getNextCode() {
+        return nextCode;
+    }
+
+    /**
+     * Keep the current entries across reset, used for a preset dictionary. Only the used slots are copied, to the
+     * heap, so the kept entries take no second table in native memory.
+     */
+    @Override
+    public void keepEntries() {
+        int count = 0;
+        for (int i = 0; i < table.capacity(); i += SLOT_BYTES) {
+            if (table.getInt(i + 4) != NOT_FOUND) {
+                count++;
+            }
+        }
+        keptSlots = new int[count];
+        keptValues = new long[count];
+        count = 0;
+        for (int i = 0; i < table.capacity(); i += SLOT_BYTES) {
+            if (table.getInt(i + 4) != NOT_FOUND) {
+                keptSlots[count] = i / SLOT_BYTES;
+                keptValues[count] = table.getLong(i);
+                count++;
+            }
+        }
+        keptCode = nextCode;
+    }
+
+    /**
+     * Remove all the multi-byte entries except the kept ones
+     */
+    @Override
+    public void reset() {
+        // an empty slot has both the key and the code set to -1
+        ByteBuffer buffer = table.duplicate();
+        while (buffer.hasRemaining()) {
+            buffer.put(EMPTY_SLOTS);
+        }
+        if (keptSlots != null) {
+            // the kept entries go back to the same slots, so every probe sequence is the same as before
+            for (int i = 0; i < keptSlots.length; i++) {
+                table.putLong(keptSlots[i] * SLOT_BYTES, keptValues[i]);
+            }
+        }
+        nextCode = keptCode;
+    }
+
+    /**
+     * Create the empty slots copied by reset
+     * @param size number of bytes
+     * @return bytes all set to -1
+     */
+    private static byte[] newEmptySlots(int size) {
+        byte[] slots = new byte[size];
+        Arrays.fill(slots, (byte) -1);
+        return slots;
+    }
+
+    /**
+     * Get the slot of the key
+     * @param key packed key
+     * @return slot index
+     */
+    private int hash(int key) {
+        return (key * 0x9E3779B1) >>> shift;
+    }
+}
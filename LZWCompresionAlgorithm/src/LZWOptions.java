@@ -0,0 +1,456 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Options of the LZW codec. The legacy options give the original headerless format with 12-bit codes, where both
+ * sides throw the dictionary away when it holds 4096 codes. Any other options are written to the file header, code
+ * 256 is reserved as the CLEAR code and the code width may grow from 9 bits up to the max width. The encoder either
+ * writes CLEAR as soon as the dictionary is full, or with adaptive reset keeps the full dictionary and writes CLEAR
+ * only when the compression ratio gets worse. The decoder just follows the CLEAR codes. A preset dictionary is
+ * loaded by both sides before the first code and its id and version follow the flags in the header. The codes are
+ * written as they are, or entropy-coded by a range coder. The encoder dictionary is kept on the heap or, for wide
+ * codes, in native memory, which the decoder does not need to know.
+ */
+public class LZWOptions {
+    /**
+     * Smallest code width of the variable-width mode
+     */
+    public static final int MIN_BITS = 9;
+    /**
+     * Largest code width, a (prefix code, byte) pair must fit in 32 bits
+     */
+    public static final int MAX_BITS = 24;
+    /**
+     * Compression level that always takes the longest match
+     */
+    public static final int LEVEL_GREEDY = 1;
+    /**
+     * Compression level that looks one phrase ahead for a better phrase boundary, slower and smaller
+     */
+    public static final int LEVEL_FLEXIBLE = 2;
+    /**
+     * Code width of the legacy format
+     */
+    public static final int LEGACY_BITS = 12;
+    /**
+     * Code that tells the decoder to reset the dictionary
+     */
+    public static final int CLEAR_CODE = 256;
+    /**
+     * Header flag of the variable-width mode
+     */
+    private static final int FLAG_VARIABLE_WIDTH = 1;
+    /**
+     * Header flag of a preset dictionary
+     */
+    private static final int FLAG_PRESET_DICTIONARY = 2;
+    /**
+     * Header flag of the range coder stage
+     */
+    private static final int FLAG_RANGE_CODER = 4;
+    /**
+     * Whether the options give the headerless legacy format
+     */
+    private boolean legacy;
+    /**
+     * Whether the code width grows with the dictionary
+     */
+    private boolean variableWidth;
+    /**
+     * Max code width
+     */
+    private int maxBits;
+    /**
+     * Whether the encoder keeps the full dictionary until the compression ratio gets worse
+     */
+    private boolean adaptiveReset;
+    /**
+     * Dictionary loaded before the first code, null for none
+     */
+    private LZWPresetDictionary presetDictionary;
+    /**
+     * Whether the codes are entropy-coded by a range coder
+     */
+    private boolean rangeCoded;
+    /**
+     * Whether every block picks a transform before LZW
+     */
+    private boolean preprocessing;
+    /**
+     * Number of megabytes of the encoder dictionary in native memory, 0 to keep it on the heap
+     */
+    private int offHeapMegabytes;
+    /**
+     * Native encoder dictionaries given back by finished encoders, reset and used again by the next ones
+     */
+    private Queue<LZWOffHeapDictionary> freeOffHeapDictionaries = new ConcurrentLinkedQueue<>();
+    /**
+     * Compression level of the encoder
+     */
+    private int level = LEVEL_GREEDY;
+
+    /**
+     * Constructor method
+     * @param maxBits max code width, 9 to 24
+     * @param variableWidth whether the code width starts at 9 bits and grows with the dictionary
+     */
+    public LZWOptions(int maxBits, boolean variableWidth) {
+        if (maxBits < MIN_BITS || maxBits > MAX_BITS) {
+            throw new IllegalArgumentException("Code width must be between " + MIN_BITS + " and " + MAX_BITS);
+        }
+        this.maxBits = maxBits;
+        this.variableWidth = variableWidth;
+    }
+
+    /**
+     * Get the options of the headerless 12-bit format
+     * @return legacy options
+     */
+    public static LZWOptions legacy() {
+        LZWOptions options = new LZWOptions(LEGACY_BITS, false);
+        options.legacy = true;
+        return options;
+    }
+
+    /**
+     * Check whether the options give the headerless legacy format
+     * @return whether the format is legacy
+     */
+    public boolean isLegacy() {
+        return legacy;
+    }
+
+    /**
+     * Check whether the code width grows with the dictionary
+     * @return whether the code width is variable
+     */
+    public boolean isVariableWidth() {
+        return variableWidth;
+    }
+
+    /**
+     * Check whether the encoder keeps the full dictionary until the compression ratio gets worse
+     * @return whether the reset is adaptive
+     */
+    public boolean isAdaptiveReset() {
+        return adaptiveReset;
+    }
+
+    /**
+     * Set whether the encoder keeps the full dictionary until the compression ratio gets worse. The legacy format
+     * has no CLEAR code, so it always resets a full dictionary.
+     * @param adaptiveReset whether the reset is adaptive
+     */
+    public void setAdaptiveReset(boolean adaptiveReset) {
+        if (legacy && adaptiveReset) {
+            throw new IllegalArgumentException("The legacy format has no CLEAR code");
+        }
+        this.adaptiveReset = adaptiveReset;
+    }
+
+    /**
+     * Check whether the codes are entropy-coded by a range coder
+     * @return whether the codes are range coded
+     */
+    public boolean isRangeCoded() {
+        return rangeCoded;
+    }
+
+    /**
+     * Set whether the codes are entropy-coded by a range coder. The legacy format writes the codes as they are.
+     * @param rangeCoded whether the codes are range coded
+     */
+    public void setRangeCoded(boolean rangeCoded) {
+        if (legacy && rangeCoded) {
+            throw new IllegalArgumentException("The legacy format has no range coder");
+        }
+        this.rangeCoded = rangeCoded;
+    }
+
+    /**
+     * Check whether every block picks a transform before LZW
+     * @return whether the blocks are preprocessed
+     */
+    public boolean isPreprocessing() {
+        return preprocessing;
+    }
+
+    /**
+     * Set whether every block of the block and archive formats picks a transform before LZW. The transform of a
+     * block is kept in the block, so it is not written to the header.
+     * @param preprocessing whether the blocks are preprocessed
+     */
+    public void setPreprocessing(boolean preprocessing) {
+        if (legacy && preprocessing) {
+            throw new IllegalArgumentException("The legacy format has no blocks");
+        }
+        this.preprocessing = preprocessing;
+    }
+
+    /**
+     * Get the number of megabytes of the encoder dictionary in native memory
+     * @return number of megabytes, 0 when the dictionary is on the heap
+     */
+    public int getOffHeapMegabytes() {
+        return offHeapMegabytes;
+    }
+
+    /**
+     * Set the number of megabytes of the encoder dictionary in native memory, see LZWOffHeapDictionary. A block or
+     * archive entry too short to use every code keeps its smaller dictionary on the heap. The dictionary is not
+     * written to the header.
+     * @param offHeapMegabytes number of megabytes, 0 to keep the dictionary on the heap
+     */
+    public void setOffHeapMegabytes(int offHeapMegabytes) {
+        int minMegabytes = LZWOffHeapDictionary.getMinMegabytes(getMaxCodes());
+        if (offHeapMegabytes != 0
+                && (offHeapMegabytes < minMegabytes || offHeapMegabytes > LZWOffHeapDictionary.MAX_MEGABYTES)) {
+            throw new IllegalArgumentException("The dictionary of " + maxBits + "-bit codes needs " + minMegabytes
+                    + " to " + LZWOffHeapDictionary.MAX_MEGABYTES + " megabytes");
+        }
+        this.offHeapMegabytes = offHeapMegabytes;
+        freeOffHeapDictionaries.clear();
+    }
+
+    /**
+     * Get the compression level of the encoder
+     * @return LEVEL_GREEDY or LEVEL_FLEXIBLE
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Set the compression level of the encoder. Both levels write codes that the same decoder reads, so the level is
+     * not written to the header.
+     * @param level LEVEL_GREEDY or LEVEL_FLEXIBLE
+     */
+    public void setLevel(int level) {
+        if (level != LEVEL_GREEDY && level != LEVEL_FLEXIBLE) {
+            throw new IllegalArgumentException("Level must be " + LEVEL_GREEDY + " or " + LEVEL_FLEXIBLE);
+        }
+        this.level = level;
+    }
+
+    /**
+     * Get the number of codes the dictionary of data of the given length can reach, rounded up to a power of two so
+     * that few table sizes are made. A small block or entry gets a small table instead of one for every code.
+     * @param dataLength number of bytes coded with one dictionary, -1 when unknown
+     * @return number of codes, at most getMaxCodes()
+     */
+    public int getTableCodes(long dataLength) {
+        int presetSize = presetDictionary == null ? 0 : presetDictionary.size();
+        // every byte adds at most one entry
+        long codes = getFirstCode() + presetSize + dataLength + 1;
+        if (dataLength < 0 || codes >= getMaxCodes()) {
+            return getMaxCodes();
+        }
+        return Integer.highestOneBit((int) codes - 1) << 1;
+    }
+
+    /**
+     * Create the dictionary of the compressor, with the entries of the preset dictionary if there is one
+     * @return encoder dictionary
+     */
+    public LZWDictionary newEncoderDictionary() {
+        return newEncoderDictionary(-1);
+    }
+
+    /**
+     * Create the dictionary of the compressor for data of the given length, with the entries of the preset
+     * dictionary if there is one
+     * @param dataLength number of bytes to compress, -1 when unknown
+     * @return encoder dictionary
+     */
+    public LZWDictionary newEncoderDictionary(long dataLength) {
+        // the table of a small block or archive entry is small enough for the heap, which codes it the same
+        if (offHeapMegabytes != 0 && getTableCodes(dataLength) == getMaxCodes()) {
+            LZWOffHeapDictionary dictionary = freeOffHeapDictionaries.poll();
+            if (dictionary != null) {
+                // reset keeps the entries of the preset dictionary
+                dictionary.reset();
+                return dictionary;
+            }
+            dictionary = new LZWOffHeapDictionary(getMaxCodes(), getFirstCode(), offHeapMegabytes);
+            if (presetDictionary != null) {
+                presetDictionary.addTo(dictionary);
+            }
+            return dictionary;
+        }
+        if (presetDictionary != null) {
+            // the entries are built once per dictionary and shared by the compressors of every thread
+            int tableCodes = getTableCodes(dataLength);
+            return new LZWEncoderDictionary(getMaxCodes(), presetDictionary.getEncoderEntries(tableCodes),
+                    getFirstCode() + presetDictionary.size(), tableCodes);
+        }
+        return new LZWEncoderDictionary(getMaxCodes(), getFirstCode(), getTableCodes(dataLength));
+    }
+
+    /**
+     * Give back a dictionary made by newEncoderDictionary once its encoder is done. A dictionary in native memory is
+     * used again by the next encoder, so the tables allocated are as many as the encoders running at once.
+     * @param dictionary encoder dictionary, not used by the caller any more
+     */
+    public void releaseEncoderDictionary(LZWDictionary dictionary) {
+        if (dictionary instanceof LZWOffHeapDictionary) {
+            freeOffHeapDictionaries.add((LZWOffHeapDictionary) dictionary);
+        }
+    }
+
+    /**
+     * Create the last stage of the compressor
+     * @param out output stream
+     * @return code writer
+     */
+    public LZWCodeWriter newCodeWriter(OutputStream out) {
+        return rangeCoded ? new RangeEncoder(out) : new BitOutputStream(out);
+    }
+
+    /**
+     * Create the first stage of the decompressor
+     * @param in input stream
+     * @return code reader
+     */
+    public LZWCodeReader newCodeReader(InputStream in) {
+        return rangeCoded ? new RangeDecoder(in) : new BitInputStream(in);
+    }
+
+    /**
+     * Get the dictionary loaded before the first code
+     * @return preset dictionary, null for none
+     */
+    public LZWPresetDictionary getPresetDictionary() {
+        return presetDictionary;
+    }
+
+    /**
+     * Set the dictionary loaded before the first code. At least one code must be left for new entries.
+     * @param presetDictionary preset dictionary, null for none
+     */
+    public void setPresetDictionary(LZWPresetDictionary presetDictionary) {
+        if (presetDictionary != null) {
+            if (legacy) {
+                throw new IllegalArgumentException("The legacy format has no room for a dictionary id");
+            }
+            if (getFirstCode() + presetDictionary.size() >= getMaxCodes()) {
+                throw new IllegalArgumentException("The dictionary does not fit in " + maxBits + "-bit codes");
+            }
+        }
+        this.presetDictionary = presetDictionary;
+        freeOffHeapDictionaries.clear();
+    }
+
+    /**
+     * Get the max code width
+     * @return max code width
+     */
+    public int getMaxBits() {
+        return maxBits;
+    }
+
+    /**
+     * Get the max number of codes in the dictionary
+     * @return max number of codes
+     */
+    public int getMaxCodes() {
+        return 1 << maxBits;
+    }
+
+    /**
+     * Get the first code assigned to a multi-byte entry
+     * @return first code
+     */
+    public int getFirstCode() {
+        return legacy ? 256 : CLEAR_CODE + 1;
+    }
+
+    /**
+     * Get the number of bits needed to write any code up to the largest code
+     * @param largestCode largest code that may be written
+     * @return code width
+     */
+    public int getCodeWidth(int largestCode) {
+        if (!variableWidth) {
+            return maxBits;
+        }
+        int width = 32 - Integer.numberOfLeadingZeros(largestCode);
+        return Math.min(Math.max(width, MIN_BITS), maxBits);
+    }
+
+    /**
+     * Get the number of bytes written by writeHeader
+     * @return header size
+     */
+    public int getHeaderSize() {
+        return presetDictionary != null ? 2 + 4 + 4 : 2;
+    }
+
+    /**
+     * Write the options to the file header
+     * @param out output stream
+     * @throws IOException exception
+     */
+    public void writeHeader(DataOutputStream out) throws IOException {
+        int flags = variableWidth ? FLAG_VARIABLE_WIDTH : 0;
+        if (presetDictionary != null) {
+            flags |= FLAG_PRESET_DICTIONARY;
+        }
+        if (rangeCoded) {
+            flags |= FLAG_RANGE_CODER;
+        }
+        out.writeByte(flags);
+        out.writeByte(maxBits);
+        if (presetDictionary != null) {
+            out.writeInt(presetDictionary.getId());
+            out.writeInt(presetDictionary.getVersion());
+        }
+    }
+
+    /**
+     * Read the options from the file header, the header must not name a dictionary
+     * @param in input stream
+     * @return options in the header
+     * @throws IOException exception
+     */
+    public static LZWOptions readHeader(DataInputStream in) throws IOException {
+        return readHeader(in, null);
+    }
+
+    /**
+     * Read the options from the file header. A dictionary named by the header must be the given one.
+     * @param in input stream
+     * @param presetDictionary dictionary available to the decoder, null for none
+     * @return options in the header
+     * @throws IOException exception
+     */
+    public static LZWOptions readHeader(DataInputStream in, LZWPresetDictionary presetDictionary)
+            throws IOException {
+        int flags = in.readUnsignedByte();
+        int maxBits = in.readUnsignedByte();
+        if ((flags & ~(FLAG_VARIABLE_WIDTH | FLAG_PRESET_DICTIONARY | FLAG_RANGE_CODER)) != 0 || maxBits < MIN_BITS
+                || maxBits > MAX_BITS) {
+            throw new IOException("Unsupported LZW header");
+        }
+        LZWOptions options = new LZWOptions(maxBits, (flags & FLAG_VARIABLE_WIDTH) != 0);
+        options.setRangeCoded((flags & FLAG_RANGE_CODER) != 0);
+        if ((flags & FLAG_PRESET_DICTIONARY) != 0) {
+            int id = in.readInt();
+            int version = in.readInt();
+            if (presetDictionary == null || presetDictionary.getId() != id
+                    || presetDictionary.getVersion() != version) {
+                throw new IOException("LZW dictionary " + id + " version " + version + " is needed");
+            }
+            try {
+                options.setPresetDictionary(presetDictionary);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unsupported LZW header", e);
+            }
+        }
+        return options;
+    }
+}
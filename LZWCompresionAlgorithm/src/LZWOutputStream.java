@@ -0,0 +1,126 @@
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * LZWOutputStream compresses the bytes written to it and writes the codes to the underlying stream, with the same
+ * header as LZWCompression.compress. Memory use is bounded by the dictionary and a small bit buffer, so it can sit in
+ * front of a socket, a pipe or an in-memory stream.
+ */
+public class LZWOutputStream extends FilterOutputStream {
+    /**
+     * Output of the codes
+     */
+    private LZWCodeWriter codeWriter;
+    /**
+     * Encoder
+     */
+    private LZWEncoder encoder;
+    /**
+     * Whether the last code has been written
+     */
+    private boolean finished;
+
+    /**
+     * Constructor method, the header is written right away
+     * @param out underlying output stream
+     * @param options codec options
+     * @throws IOException exception
+     */
+    public LZWOutputStream(OutputStream out, LZWOptions options) throws IOException {
+        super(out);
+        if (!options.isLegacy()) {
+            DataOutputStream header = new DataOutputStream(out);
+            LZWCompression.writeFormat(header, LZWCompression.FORMAT_STREAM);
+            options.writeHeader(header);
+        }
+        codeWriter = options.newCodeWriter(out);
+        encoder = new LZWEncoder(codeWriter, options);
+    }
+
+    /**
+     * Compress one byte
+     * @param b byte, only the low 8 bits are used
+     * @throws IOException exception
+     */
+    @Override
+    public void write(int b) throws IOException {
+        checkNotFinished();
+        encoder.write(b);
+    }
+
+    /**
+     * Compress the bytes of the array
+     * @param b array
+     * @param off index of the first byte
+     * @param len number of bytes
+     * @throws IOException exception
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkNotFinished();
+        encoder.write(b, off, len);
+    }
+
+    /**
+     * Compress the bytes left in the buffer, for example a memory-mapped file
+     * @param buffer buffer, its position is moved to its limit
+     * @throws IOException exception
+     */
+    public void write(ByteBuffer buffer) throws IOException {
+        checkNotFinished();
+        encoder.write(buffer);
+    }
+
+    /**
+     * Write the complete bytes of codes so far. The current string and a partial byte are held back, since more
+     * bytes may extend them.
+     * @throws IOException exception
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!finished) {
+            codeWriter.flushCompleteBytes();
+        } else {
+            out.flush();
+        }
+    }
+
+    /**
+     * Write the last code and pad the last byte without closing the underlying stream
+     * @throws IOException exception
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            encoder.finish();
+            encoder.release();
+            codeWriter.flush();
+            finished = true;
+        }
+    }
+
+    /**
+     * Finish the codes and close the underlying stream
+     * @throws IOException exception
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Check that no byte is written after finish
+     * @throws IOException exception
+     */
+    private void checkNotFinished() throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+    }
+}
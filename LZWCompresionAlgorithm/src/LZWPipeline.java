@@ -0,0 +1,479 @@
+import java.io.*;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * LZWPipeline overlaps the disk with the codec. A reader thread fills input buffers, the calling thread compresses or
+ * decompresses them, and a writer thread drains the output buffers to the file. Each link is a bounded ring of
+ * buffers, two by default, so one buffer is filled while the other one is drained. The time every stage spent
+ * waiting for the others is kept for the last run.
+ */
+public class LZWPipeline {
+    /**
+     * Default size of a buffer
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    /**
+     * Default number of buffers of a ring, two for double buffering
+     */
+    public static final int DEFAULT_BUFFER_COUNT = 2;
+    /**
+     * Size of a buffer
+     */
+    private int bufferSize;
+    /**
+     * Number of buffers of a ring
+     */
+    private int bufferCount;
+    /**
+     * Nanoseconds the reader waited for a free input buffer
+     */
+    private long readerStall;
+    /**
+     * Nanoseconds the codec waited for a full input buffer
+     */
+    private long inputStall;
+    /**
+     * Nanoseconds the codec waited for a free output buffer
+     */
+    private long outputStall;
+    /**
+     * Nanoseconds the writer waited for a full output buffer
+     */
+    private long writerStall;
+    /**
+     * Whether a file went through the pipeline
+     */
+    private boolean ran;
+
+    /**
+     * Constructor method
+     * @param bufferSize size of a buffer
+     * @param bufferCount number of buffers of a ring
+     */
+    public LZWPipeline(int bufferSize, int bufferCount) {
+        if (bufferSize <= 0 || bufferCount <= 0) {
+            throw new IllegalArgumentException("Buffer size and count must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.bufferCount = bufferCount;
+    }
+
+    /**
+     * Compress the file into the stream format, or the legacy format.
+     * @param inputFile input file
+     * @param outputFile output file
+     * @param options codec options
+     * @throws IOException exception
+     */
+    public void compress(String inputFile, String outputFile, LZWOptions options) throws IOException {
+        run(inputFile, outputFile, (in, out) -> {
+            try (LZWOutputStream lzwOutputStream = new LZWOutputStream(out, options)) {
+                in.transferTo(lzwOutputStream);
+            }
+        });
+    }
+
+    /**
+     * Decompress a file in the stream format or the legacy format.
+     * @param inputFile input file
+     * @param outputFile output file
+     * @param presetDictionary dictionary named by the header, null for none
+     * @throws IOException exception
+     */
+    public void decompress(String inputFile, String outputFile, LZWPresetDictionary presetDictionary)
+            throws IOException {
+        run(inputFile, outputFile, (in, out) -> {
+            try (LZWInputStream lzwInputStream = new LZWInputStream(in, presetDictionary)) {
+                lzwInputStream.transferTo(out);
+            }
+            out.close();
+        });
+    }
+
+    /**
+     * Get whether a file went through the pipeline, the block and columnar formats bypass it.
+     * @return true when the pipeline ran
+     */
+    public boolean hasRun() {
+        return ran;
+    }
+
+    /**
+     * Get how long every stage waited in the last run.
+     * @return stall report
+     */
+    public String getStallReport() {
+        return String.format("read stalled %d ms, codec stalled %d ms on input and %d ms on output, "
+                + "write stalled %d ms", readerStall / 1000000, inputStall / 1000000, outputStall / 1000000,
+                writerStall / 1000000);
+    }
+
+    /**
+     * Run the three stages, the codec runs on the calling thread.
+     * @param inputFile input file
+     * @param outputFile output file
+     * @param codec codec stage
+     * @throws IOException exception
+     */
+    private void run(String inputFile, String outputFile, Codec codec) throws IOException {
+        ran = true;
+        readerStall = 0;
+        inputStall = 0;
+        outputStall = 0;
+        writerStall = 0;
+        Ring inputRing = new Ring(bufferCount, bufferSize);
+        Ring outputRing = new Ring(bufferCount, bufferSize);
+        InputStream fileInputStream = new FileInputStream(inputFile);
+        OutputStream fileOutputStream;
+        try {
+            fileOutputStream = new FileOutputStream(outputFile);
+        } catch (IOException e) {
+            fileInputStream.close();
+            throw e;
+        }
+        IOException[] errors = new IOException[2];
+
+        Thread reader = new Thread(() -> {
+            try (InputStream in = fileInputStream) {
+                while (true) {
+                    long start = System.nanoTime();
+                    Buffer buffer = inputRing.free.take();
+                    readerStall += System.nanoTime() - start;
+                    buffer.length = in.readNBytes(buffer.data, 0, buffer.data.length);
+                    if (buffer.length == 0) {
+                        break;
+                    }
+                    inputRing.full.put(buffer);
+                }
+            } catch (IOException e) {
+                errors[0] = e;
+            } catch (InterruptedException e) {
+                return;
+            }
+            inputRing.full.add(Ring.END);
+        }, "lzw-reader");
+
+        Thread writer = new Thread(() -> {
+            try (OutputStream out = fileOutputStream) {
+                while (true) {
+                    long start = System.nanoTime();
+                    Buffer buffer = outputRing.full.take();
+                    writerStall += System.nanoTime() - start;
+                    if (buffer == Ring.END) {
+                        break;
+                    }
+                    // after an error keep draining so the codec never blocks
+                    if (errors[1] == null) {
+                        try {
+                            out.write(buffer.data, 0, buffer.length);
+                        } catch (IOException e) {
+                            errors[1] = e;
+                        }
+                    }
+                    buffer.length = 0;
+                    outputRing.free.put(buffer);
+                }
+            } catch (IOException e) {
+                if (errors[1] == null) {
+                    errors[1] = e;
+                }
+            } catch (InterruptedException e) {
+                // the codec always ends the output ring, so this does not happen
+            }
+        }, "lzw-writer");
+
+        reader.start();
+        writer.start();
+        RingInputStream in = new RingInputStream(inputRing);
+        RingOutputStream out = new RingOutputStream(outputRing);
+        try {
+            codec.code(in, out);
+        } finally {
+            reader.interrupt();
+            out.close();
+            try {
+                reader.join();
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the pipeline");
+            }
+            inputStall = in.stall;
+            outputStall = out.stall;
+        }
+        if (errors[0] != null) {
+            throw errors[0];
+        }
+        if (errors[1] != null) {
+            throw errors[1];
+        }
+    }
+
+    /**
+     * Codec stage of the pipeline
+     */
+    private interface Codec {
+        /**
+         * Read all the input and write all the output
+         * @param in input
+         * @param out output
+         * @throws IOException exception
+         */
+        void code(InputStream in, OutputStream out) throws IOException;
+    }
+
+    /**
+     * Buffer passed between two stages
+     */
+    private static class Buffer {
+        /**
+         * Bytes
+         */
+        private byte[] data;
+        /**
+         * Number of bytes used
+         */
+        private int length;
+
+        /**
+         * Constructor method
+         * @param size size of the buffer
+         */
+        private Buffer(int size) {
+            data = new byte[size];
+        }
+    }
+
+    /**
+     * Ring of buffers between two stages, the free buffers go forward and the full buffers come back
+     */
+    private static class Ring {
+        /**
+         * Marks the end of the full buffers
+         */
+        private static final Buffer END = new Buffer(0);
+        /**
+         * Buffers ready to be filled
+         */
+        private ArrayBlockingQueue<Buffer> free;
+        /**
+         * Buffers ready to be drained, with room for the end mark
+         */
+        private ArrayBlockingQueue<Buffer> full;
+
+        /**
+         * Constructor method
+         * @param count number of buffers
+         * @param size size of a buffer
+         */
+        private Ring(int count, int size) {
+            free = new ArrayBlockingQueue<>(count);
+            full = new ArrayBlockingQueue<>(count + 1);
+            for (int i = 0; i < count; i++) {
+                free.add(new Buffer(size));
+            }
+        }
+    }
+
+    /**
+     * Input stream over the full buffers of a ring
+     */
+    private static class RingInputStream extends InputStream {
+        /**
+         * Ring
+         */
+        private Ring ring;
+        /**
+         * Buffer being read, null before the first read
+         */
+        private Buffer current;
+        /**
+         * Index of the next byte of the current buffer
+         */
+        private int position;
+        /**
+         * Nanoseconds spent waiting for a full buffer
+         */
+        private long stall;
+        /**
+         * Buffer of a single byte read
+         */
+        private byte[] single = new byte[1];
+
+        /**
+         * Constructor method
+         * @param ring ring
+         */
+        private RingInputStream(Ring ring) {
+            this.ring = ring;
+        }
+
+        /**
+         * Read a byte
+         * @return byte, -1 at the end
+         * @throws IOException exception
+         */
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        /**
+         * Read bytes from the current buffer, taking the next full buffer when it is used up
+         * @param b destination
+         * @param off offset in the destination
+         * @param len maximum number of bytes
+         * @return number of bytes read, -1 at the end
+         * @throws IOException exception
+         */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (current == Ring.END) {
+                return -1;
+            }
+            if (current == null || position == current.length) {
+                try {
+                    if (current != null) {
+                        ring.free.put(current);
+                    }
+                    long start = System.nanoTime();
+                    current = ring.full.take();
+                    stall += System.nanoTime() - start;
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted while waiting for input");
+                }
+                position = 0;
+                if (current == Ring.END) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current.data, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+
+    /**
+     * Output stream over the free buffers of a ring
+     */
+    private static class RingOutputStream extends OutputStream {
+        /**
+         * Ring
+         */
+        private Ring ring;
+        /**
+         * Buffer being filled, null when none is taken
+         */
+        private Buffer current;
+        /**
+         * Whether the end mark has been sent
+         */
+        private boolean closed;
+        /**
+         * Nanoseconds spent waiting for a free buffer
+         */
+        private long stall;
+        /**
+         * Buffer of a single byte written
+         */
+        private byte[] single = new byte[1];
+
+        /**
+         * Constructor method
+         * @param ring ring
+         */
+        private RingOutputStream(Ring ring) {
+            this.ring = ring;
+        }
+
+        /**
+         * Write a byte
+         * @param b byte
+         * @throws IOException exception
+         */
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        /**
+         * Write bytes into free buffers, passing every buffer that fills up to the writer
+         * @param b source
+         * @param off offset in the source
+         * @param len number of bytes
+         * @throws IOException exception
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            while (len > 0) {
+                if (current == null) {
+                    try {
+                        long start = System.nanoTime();
+                        current = ring.free.take();
+                        stall += System.nanoTime() - start;
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException("Interrupted while waiting for output");
+                    }
+                }
+                int n = Math.min(len, current.data.length - current.length);
+                System.arraycopy(b, off, current.data, current.length, n);
+                current.length += n;
+                off += n;
+                len -= n;
+                if (current.length == current.data.length) {
+                    send();
+                }
+            }
+        }
+
+        /**
+         * Pass the current buffer to the writer
+         * @throws IOException exception
+         */
+        @Override
+        public void flush() throws IOException {
+            if (current != null && current.length > 0) {
+                send();
+            }
+        }
+
+        /**
+         * Pass the current buffer and the end mark to the writer
+         * @throws IOException exception
+         */
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    if (current != null && current.length > 0) {
+                        send();
+                    }
+                } finally {
+                    ring.full.add(Ring.END);
+                }
+            }
+        }
+
+        /**
+         * Put the current buffer to the full buffers
+         * @throws IOException exception
+         */
+        private void send() throws IOException {
+            try {
+                ring.full.put(current);
+                current = null;
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while passing output");
+            }
+        }
+    }
+}
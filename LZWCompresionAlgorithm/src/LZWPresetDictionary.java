@@ -0,0 +1,264 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Dictionary trained on a sample and loaded by both sides before the first byte, so short inputs that look like the
+ * sample compress well from the start. The entries take the codes right after the CLEAR code and stay across every
+ * CLEAR. A dictionary is known by its id and version, which are written to the header of every file that uses it.
+ * The file layout after the format bytes is the id, the version, the number of entries and then the prefix code and
+ * the byte of every entry.
+ */
+public class LZWPresetDictionary {
+    /**
+     * Format of a dictionary file
+     */
+    static final int FORMAT_DICTIONARY = 'D';
+    /**
+     * Default number of entries kept by train
+     */
+    public static final int DEFAULT_ENTRIES = 4096;
+    /**
+     * Max number of codes learned from the sample before the best ones are kept
+     */
+    private static final int TRAINING_CODES = 1 << 16;
+    /**
+     * Dictionary id
+     */
+    private int id;
+    /**
+     * Dictionary version
+     */
+    private int version;
+    /**
+     * Prefix code of each entry
+     */
+    private int[] prefix;
+    /**
+     * Last byte of each entry
+     */
+    private int[] suffix;
+    /**
+     * Entries of the encoder dictionary by the number of codes of its table, built once and shared by the compressors
+     * of every thread
+     */
+    private final ConcurrentMyHashMap<Integer, IntIntMap> encoderEntries = new ConcurrentMyHashMap<>();
+
+    /**
+     * Constructor method
+     * @param id dictionary id
+     * @param version dictionary version
+     * @param prefix prefix code of each entry, either a single byte or an earlier entry
+     * @param suffix last byte of each entry
+     */
+    public LZWPresetDictionary(int id, int version, int[] prefix, int[] suffix) {
+        if (prefix.length != suffix.length) {
+            throw new IllegalArgumentException("Every entry needs a prefix and a byte");
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            boolean knownPrefix = (prefix[i] >= 0 && prefix[i] < 256)
+                    || (prefix[i] > LZWOptions.CLEAR_CODE && prefix[i] <= LZWOptions.CLEAR_CODE + i);
+            if (!knownPrefix || suffix[i] < 0 || suffix[i] > 255) {
+                throw new IllegalArgumentException("Invalid dictionary entry " + i);
+            }
+        }
+        this.id = id;
+        this.version = version;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Build a dictionary from a sample. The sample is parsed as LZW would parse it and the strings used most often,
+     * counting the longer strings that start with them, are kept. A string always counts at least as much as its
+     * prefix, so the prefix of every kept string is kept too.
+     * @param sample sample input
+     * @param id dictionary id
+     * @param version dictionary version
+     * @param maxEntries max number of entries
+     * @return trained dictionary
+     * @throws IOException exception
+     */
+    public static LZWPresetDictionary train(InputStream sample, int id, int version, int maxEntries)
+            throws IOException {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Number of entries must not be negative");
+        }
+        int firstCode = LZWOptions.CLEAR_CODE + 1;
+        LZWEncoderDictionary dictionary = new LZWEncoderDictionary(TRAINING_CODES, firstCode);
+        int[] parents = new int[TRAINING_CODES];
+        int[] bytes = new int[TRAINING_CODES];
+        long[] counts = new long[TRAINING_CODES];
+        InputStream in = new BufferedInputStream(sample);
+        int prefixCode = -1;
+        int b;
+        while ((b = in.read()) != -1) {
+            if (prefixCode == -1) {
+                prefixCode = b;
+                continue;
+            }
+            int code = dictionary.find(prefixCode, b);
+            if (code != LZWEncoderDictionary.NOT_FOUND) {
+                prefixCode = code;
+                continue;
+            }
+            counts[prefixCode]++;
+            // the dictionary stops learning when it is full, the counts go on
+            if (!dictionary.isFull()) {
+                code = dictionary.add(prefixCode, b);
+                parents[code] = prefixCode;
+                bytes[code] = b;
+            }
+            prefixCode = b;
+        }
+        if (prefixCode != -1) {
+            counts[prefixCode]++;
+        }
+        // a string counts every use of the strings that start with it, children have larger codes
+        int nextCode = dictionary.getNextCode();
+        for (int code = nextCode - 1; code >= firstCode; code--) {
+            counts[parents[code]] += counts[code];
+        }
+        // best counts first, ties by the smaller code so a prefix comes before its children
+        Integer[] codes = new Integer[nextCode - firstCode];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = firstCode + i;
+        }
+        Arrays.sort(codes, (x, y) -> counts[x] != counts[y] ? Long.compare(counts[y], counts[x]) : x - y);
+        int size = 0;
+        while (size < Math.min(maxEntries, codes.length) && counts[codes[size]] > 0) {
+            size++;
+        }
+        int[] kept = new int[size];
+        for (int i = 0; i < size; i++) {
+            kept[i] = codes[i];
+        }
+        // renumber the kept strings in their old order, so every prefix keeps a smaller code
+        Arrays.sort(kept);
+        int[] renumbered = new int[nextCode];
+        for (int i = 0; i < 256; i++) {
+            renumbered[i] = i;
+        }
+        int[] prefix = new int[size];
+        int[] suffix = new int[size];
+        for (int i = 0; i < size; i++) {
+            renumbered[kept[i]] = firstCode + i;
+            prefix[i] = renumbered[parents[kept[i]]];
+            suffix[i] = bytes[kept[i]];
+        }
+        return new LZWPresetDictionary(id, version, prefix, suffix);
+    }
+
+    /**
+     * Get the dictionary id
+     * @return dictionary id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the dictionary version
+     * @return dictionary version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the number of entries
+     * @return number of entries
+     */
+    public int size() {
+        return prefix.length;
+    }
+
+    /**
+     * Add the entries to an empty encoder dictionary and keep them across reset
+     * @param dictionary encoder dictionary
+     */
+    public void addTo(LZWDictionary dictionary) {
+        for (int i = 0; i < prefix.length; i++) {
+            dictionary.add(prefix[i], suffix[i]);
+        }
+        dictionary.keepEntries();
+    }
+
+    /**
+     * Get the entries as an encoder dictionary with a table for the given number of codes keeps them, from the
+     * packed key (prefix code, byte) to the code. The map is built by the first call for each number of codes and
+     * then shared by every caller, so it must not be changed.
+     * @param tableCodes number of codes the table of the encoder dictionary is sized for, see LZWOptions.getTableCodes
+     * @return entries made by LZWEncoderDictionary.newEntries
+     */
+    public IntIntMap getEncoderEntries(int tableCodes) {
+        return encoderEntries.computeIfAbsent(tableCodes, c -> {
+            IntIntMap entries = LZWEncoderDictionary.newEntries(c);
+            for (int i = 0; i < prefix.length; i++) {
+                // a repeated entry keeps its first code, as LZWEncoderDictionary.add does
+                entries.putIfAbsent((prefix[i] << 8) | suffix[i], LZWOptions.CLEAR_CODE + 1 + i);
+            }
+            return entries;
+        });
+    }
+
+    /**
+     * Add the entries to an empty decoder dictionary and keep them across reset
+     * @param dictionary decoder dictionary
+     */
+    public void addTo(LZWDecoderDictionary dictionary) {
+        for (int i = 0; i < prefix.length; i++) {
+            dictionary.add(prefix[i], suffix[i]);
+        }
+        dictionary.keepEntries();
+    }
+
+    /**
+     * Write the dictionary, format bytes included
+     * @param out output stream
+     * @throws IOException exception
+     */
+    public void write(DataOutputStream out) throws IOException {
+        LZWCompression.writeFormat(out, FORMAT_DICTIONARY);
+        out.writeInt(id);
+        out.writeInt(version);
+        out.writeInt(prefix.length);
+        for (int i = 0; i < prefix.length; i++) {
+            out.writeInt(prefix[i]);
+            out.writeByte(suffix[i]);
+        }
+    }
+
+    /**
+     * Read a dictionary, format bytes included
+     * @param in input stream that supports mark
+     * @return dictionary
+     * @throws IOException exception
+     */
+    public static LZWPresetDictionary read(InputStream in) throws IOException {
+        if (LZWCompression.readFormat(in) != FORMAT_DICTIONARY) {
+            throw new IOException("Not an LZW dictionary");
+        }
+        DataInputStream dataInputStream = new DataInputStream(in);
+        int id = dataInputStream.readInt();
+        int version = dataInputStream.readInt();
+        int size = dataInputStream.readInt();
+        if (size < 0 || size > (1 << LZWOptions.MAX_BITS)) {
+            throw new IOException("Corrupt LZW dictionary");
+        }
+        int[] prefix = new int[size];
+        int[] suffix = new int[size];
+        for (int i = 0; i < size; i++) {
+            prefix[i] = dataInputStream.readInt();
+            suffix[i] = dataInputStream.readUnsignedByte();
+        }
+        try {
+            return new LZWPresetDictionary(id, version, prefix, suffix);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt LZW dictionary", e);
+        }
+    }
+}
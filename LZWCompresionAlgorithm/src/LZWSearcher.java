@@ -0,0 +1,405 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * LZWSearcher finds a literal pattern in a compressed file without decompressing it. The codes are read and the
+ * dictionary is rebuilt as the decoder would, but instead of the bytes of an entry the searcher keeps, per entry and
+ * packed in one int, the state of a KMP automaton after reading the entry from the start state, the first byte of the
+ * entry, and whether a match ends inside the entry. A code is then handled in constant time unless the automaton is
+ * inside a partial match or the entry holds a match, and only then is the prefix chain of the entry walked, which
+ * costs no more than expanding it. The stream, legacy and block formats are supported, a block that is stored or
+ * transformed is decompressed and scanned. The tables are made once per search, sized by the block length, and
+ * emptied between blocks.
+ */
+public class LZWSearcher {
+    /**
+     * Max number of bytes of a pattern
+     */
+    public static final int MAX_PATTERN_LENGTH = 1 << 12;
+    /**
+     * Number of original bytes the tables of a stream are first sized for, they grow with the stream
+     */
+    private static final int STREAM_TABLE_BYTES = 1 << 20;
+    /**
+     * Number of match offsets kept before they are given to the listener
+     */
+    private static final int MATCH_BUFFER_SIZE = 1 << 10;
+    /**
+     * Mask of the state in the search data of an entry, a state is at most MAX_PATTERN_LENGTH
+     */
+    private static final int STATE_MASK = (1 << 13) - 1;
+    /**
+     * Shift of the first byte in the search data of an entry
+     */
+    private static final int FIRST_BYTE_SHIFT = 13;
+    /**
+     * Flag set in the search data of an entry when a match that starts inside the entry ends inside it
+     */
+    private static final int MATCH_FLAG = 1 << 21;
+    /**
+     * Pattern
+     */
+    private byte[] pattern;
+    /**
+     * KMP automaton, the next state of state s and byte b is at s * 256 + b
+     */
+    private int[] automaton;
+    /**
+     * State of the automaton after the bytes searched so far
+     */
+    private int state;
+    /**
+     * Number of bytes searched so far
+     */
+    private long position;
+    /**
+     * Listener of the match offsets
+     */
+    private LongConsumer listener;
+    /**
+     * Number of matches found so far
+     */
+    private long matchCount;
+    /**
+     * Offsets of the matches not given to the listener yet
+     */
+    private long[] matches = new long[MATCH_BUFFER_SIZE];
+    /**
+     * Number of offsets in matches
+     */
+    private int pendingMatches;
+    /**
+     * Bytes of the head of an entry
+     */
+    private byte[] headBytes;
+    /**
+     * End offsets of the matches inside one entry, last match first
+     */
+    private int[] matchEnds = new int[16];
+    /**
+     * Dictionary rebuilt from the codes, made once per search and emptied between blocks
+     */
+    private LZWDecoderDictionary dictionary;
+    /**
+     * Search data of each entry: the state of the automaton after the entry from the start state, the first byte
+     * shifted by FIRST_BYTE_SHIFT and MATCH_FLAG
+     */
+    private int[] entries;
+    /**
+     * The former code, -1 at the start and after a CLEAR code
+     */
+    private int formerCode;
+    /**
+     * Width of the next code
+     */
+    private int codeWidth;
+    /**
+     * Largest code that codeWidth covers, -1 to look the width up again after a reset
+     */
+    private int widthLimit;
+
+    /**
+     * Constructor method
+     * @param pattern pattern, 1 to MAX_PATTERN_LENGTH bytes
+     */
+    public LZWSearcher(byte[] pattern) {
+        if (pattern.length == 0 || pattern.length > MAX_PATTERN_LENGTH) {
+            throw new IllegalArgumentException("Pattern must have 1 to " + MAX_PATTERN_LENGTH + " bytes");
+        }
+        this.pattern = pattern.clone();
+        int m = pattern.length;
+        automaton = new int[(m + 1) * 256];
+        automaton[pattern[0] & 0xFF] = 1;
+        // restart is the state reached by the pattern without its first byte
+        int restart = 0;
+        for (int j = 1; j <= m; j++) {
+            System.arraycopy(automaton, restart * 256, automaton, j * 256, 256);
+            if (j < m) {
+                automaton[j * 256 + (pattern[j] & 0xFF)] = j + 1;
+                restart = automaton[restart * 256 + (pattern[j] & 0xFF)];
+            }
+        }
+        headBytes = new byte[m];
+    }
+
+    /**
+     * Search the compressed file and report the offset in the original bytes of the start of every match, in order.
+     * @param file compressed file in the stream, legacy or block format
+     * @param presetDictionary dictionary named by the header, null for none
+     * @param listener listener of the match offsets
+     * @return number of matches
+     * @throws IOException exception
+     */
+    public long search(String file, LZWPresetDictionary presetDictionary, LongConsumer listener) throws IOException {
+        this.listener = listener;
+        state = 0;
+        position = 0;
+        matchCount = 0;
+        dictionary = null;
+        pendingMatches = 0;
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+            int format = LZWCompression.readFormat(inputStream);
+            if (format == LZWCompression.FORMAT_LEGACY) {
+                searchCodes(LZWOptions.legacy().newCodeReader(inputStream), LZWOptions.legacy(), -1, Long.MAX_VALUE);
+            } else if (format == LZWCompression.FORMAT_STREAM) {
+                LZWOptions options = LZWOptions.readHeader(new DataInputStream(inputStream), presetDictionary);
+                searchCodes(options.newCodeReader(inputStream), options, -1, Long.MAX_VALUE);
+            } else if (format == LZWCompression.FORMAT_BLOCK) {
+                DataInputStream dataInputStream = new DataInputStream(inputStream);
+                LZWBlockIndex index = LZWBlockIndex.read(dataInputStream, presetDictionary);
+                for (int block = 0; block < index.getBlockCount(); block++) {
+                    byte[] data = dataInputStream.readNBytes(index.getCompressedLength(block));
+                    if (data.length != index.getCompressedLength(block)) {
+                        throw new IOException("Truncated block " + block);
+                    }
+                    searchBlock(data, index.getBlockLength(block), index.getOptions());
+                }
+            } else {
+                throw new IOException("Only the stream, legacy and block formats can be searched");
+            }
+        } finally {
+            // the matches found before an error are reported all the same
+            flushMatches();
+            dictionary = null;
+        }
+        return matchCount;
+    }
+
+    /**
+     * Search one block, the state of the automaton goes on from the former block
+     * @param data method byte followed by the compressed bytes
+     * @param length number of original bytes
+     * @param options codec options
+     * @throws IOException exception
+     */
+    private void searchBlock(byte[] data, int length, LZWOptions options) throws IOException {
+        if (data.length > 0 && data[0] == LZWBlockCompressor.METHOD_LZW) {
+            long end = position + length;
+            searchCodes(options.newCodeReader(new ByteArrayInputStream(data, 1, data.length - 1)), options, length,
+                    end);
+            if (position != end) {
+                throw new IOException("Corrupt block, expected " + length + " bytes");
+            }
+            return;
+        }
+        byte[] block;
+        try {
+            block = LZWBlockCompressor.decompressBlock(data, length, options);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (byte b : block) {
+            step(b);
+        }
+    }
+
+    /**
+     * Search the codes with an empty dictionary, following the same rules as LZWDecoder. The dictionary and the
+     * search data are made by the first call of a search and emptied by the next ones.
+     * @param reader code reader
+     * @param options codec options, the same for every call of a search
+     * @param length number of original bytes, -1 when unknown
+     * @param end number of bytes searched at which the codes end
+     * @throws IOException exception
+     */
+    private void searchCodes(LZWCodeReader reader, LZWOptions options, long length, long end) throws IOException {
+        if (dictionary == null) {
+            newDictionary(options, length);
+        } else {
+            dictionary.reset();
+        }
+        formerCode = -1;
+        widthLimit = -1;
+        while (position < end) {
+            int largestCode = formerCode == -1 ? dictionary.getNextCode() - 1 : dictionary.getNextCode();
+            // the width only grows with the largest code until the next reset
+            if (largestCode > widthLimit) {
+                codeWidth = options.getCodeWidth(largestCode);
+                widthLimit = codeWidth >= 31 ? Integer.MAX_VALUE : (1 << codeWidth) - 1;
+            }
+            int code = reader.readBits(codeWidth);
+            if (code == -1) {
+                break;
+            }
+            searchCode(code, options.isLegacy());
+        }
+    }
+
+    /**
+     * Create the dictionary and the search data, with the entries of the preset dictionary if there is one
+     * @param options codec options
+     * @param length number of original bytes of the first codes, -1 when unknown
+     */
+    private void newDictionary(LZWOptions options, long length) {
+        int m = pattern.length;
+        int tableCodes = options.getTableCodes(length < 0 ? STREAM_TABLE_BYTES : length);
+        dictionary = new LZWDecoderDictionary(options.getMaxCodes(), options.getFirstCode(), tableCodes);
+        entries = new int[tableCodes];
+        for (int b = 0; b < 256; b++) {
+            entries[b] = automaton[b] | (b << FIRST_BYTE_SHIFT) | (automaton[b] == m ? MATCH_FLAG : 0);
+        }
+        if (options.getPresetDictionary() != null) {
+            options.getPresetDictionary().addTo(dictionary);
+            for (int code = options.getFirstCode(); code < dictionary.getNextCode(); code++) {
+                link(code, dictionary.getPrefix(code), dictionary.getSuffix(code));
+            }
+        }
+    }
+
+    /**
+     * Search one code. The work of a code is kept in its own method, which the JIT compiles after a few calls, as
+     * LZWDecoder.decode is, and the rare cases are left to methods of their own so the compiled code stays small.
+     * @param code code read
+     * @param legacy whether the codes are in the legacy format
+     * @throws IOException exception
+     */
+    private void searchCode(int code, boolean legacy) throws IOException {
+        if (!legacy && code == LZWOptions.CLEAR_CODE) {
+            dictionary.reset();
+            formerCode = -1;
+            widthLimit = -1;
+            return;
+        }
+        if (formerCode == -1) {
+            if (!dictionary.contains(code)) {
+                throw new IOException("Corrupt LZW codes");
+            }
+        } else {
+            if (legacy && dictionary.isFull()) {
+                dictionary.reset();
+                widthLimit = -1;
+            }
+            if (!dictionary.contains(code)) {
+                // the former string plus its first byte, which the encoder used before the decoder knew it
+                if (code != dictionary.getNextCode() || dictionary.isFull() || !dictionary.contains(formerCode)) {
+                    throw new IOException("Corrupt LZW codes");
+                }
+                int b = (entries[formerCode] >>> FIRST_BYTE_SHIFT) & 0xFF;
+                link(dictionary.add(formerCode, b), formerCode, b);
+            } else if (!dictionary.isFull()) {
+                int b = (entries[code] >>> FIRST_BYTE_SHIFT) & 0xFF;
+                link(dictionary.add(formerCode, b), formerCode, b);
+            }
+        }
+        int entry = entries[code];
+        // the state goes on from the former entry only inside a partial match
+        state = state == 0 ? entry & STATE_MASK : searchHead(code);
+        if ((entry & MATCH_FLAG) != 0) {
+            reportMatches(code);
+        }
+        position += dictionary.getLength(code);
+        formerCode = code;
+    }
+
+    /**
+     * Fill in the search data of a new entry from the data of its prefix, the table doubles when it is full
+     * @param code code of the new entry
+     * @param prefix prefix code of the entry
+     * @param b last byte of the entry
+     */
+    private void link(int code, int prefix, int b) {
+        if (code == entries.length) {
+            entries = Arrays.copyOf(entries, code * 2);
+        }
+        int prefixEntry = entries[prefix];
+        int s = automaton[(prefixEntry & STATE_MASK) * 256 + b];
+        int matchFlag = s == pattern.length ? MATCH_FLAG : prefixEntry & MATCH_FLAG;
+        entries[code] = s | (prefixEntry & (0xFF << FIRST_BYTE_SHIFT)) | matchFlag;
+    }
+
+    /**
+     * Search the head of an entry that may finish the partial match of the former entries. Only a match that starts
+     * before the entry needs the bytes, and it ends in the prefix of the entry as long as the pattern.
+     * @param code code of the entry
+     * @return state of the automaton after the entry
+     */
+    private int searchHead(int code) {
+        int m = pattern.length;
+        int length = dictionary.getLength(code);
+        int head = code;
+        while (dictionary.getLength(head) > m) {
+            head = dictionary.getPrefix(head);
+        }
+        int headLength = dictionary.expand(head, headBytes, 0);
+        int s = state;
+        int after = entries[code] & STATE_MASK;
+        for (int j = 0; j < headLength; j++) {
+            s = automaton[s * 256 + (headBytes[j] & 0xFF)];
+            if (s == m && j + 1 < m) {
+                report(position + j + 1 - m);
+            }
+            // once the partial match starts inside the entry the state no longer depends on the former state
+            if (s <= j + 1) {
+                break;
+            }
+            if (j + 1 == length) {
+                after = s;
+            }
+        }
+        return after;
+    }
+
+    /**
+     * Report the matches that start and end inside an entry, in order. A match ends at every prefix of the entry
+     * whose state is the last state, and the walk stops at the first prefix without a match.
+     * @param code code of the entry
+     */
+    private void reportMatches(int code) {
+        int count = 0;
+        // walk the matches last one first
+        for (int prefix = code; prefix != -1 && (entries[prefix] & MATCH_FLAG) != 0;
+             prefix = dictionary.getPrefix(prefix)) {
+            if ((entries[prefix] & STATE_MASK) == pattern.length) {
+                if (count == matchEnds.length) {
+                    matchEnds = Arrays.copyOf(matchEnds, count * 2);
+                }
+                matchEnds[count++] = dictionary.getLength(prefix);
+            }
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            report(position + matchEnds[i] - pattern.length);
+        }
+    }
+
+    /**
+     * Search one byte
+     * @param b byte
+     */
+    private void step(byte b) {
+        state = automaton[state * 256 + (b & 0xFF)];
+        position++;
+        if (state == pattern.length) {
+            report(position - pattern.length);
+        }
+    }
+
+    /**
+     * Report a match. The offsets are given to the listener in batches, so the listener is called from a cold
+     * method and is not compiled into the code of every entry.
+     * @param offset offset of the start of the match
+     */
+    private void report(long offset) {
+        matchCount++;
+        matches[pendingMatches++] = offset;
+        if (pendingMatches == matches.length) {
+            flushMatches();
+        }
+    }
+
+    /**
+     * Give the kept offsets to the listener
+     */
+    private void flushMatches() {
+        for (int i = 0; i < pendingMatches; i++) {
+            listener.accept(matches[i]);
+        }
+        pendingMatches = 0;
+    }
+}
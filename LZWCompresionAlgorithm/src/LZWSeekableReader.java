@@ -0,0 +1,136 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LZWSeekableReader reads any range of the original bytes of a file in the block format. Only the blocks that cover
+ * the range are read and decompressed, and the most recently used decoded blocks are kept in a small LRU cache.
+ */
+public class LZWSeekableReader implements Closeable {
+    /**
+     * Default number of decoded blocks in the cache
+     */
+    public static final int DEFAULT_CACHE_BLOCKS = 8;
+    /**
+     * Channel of the compressed file
+     */
+    private FileChannel channel;
+    /**
+     * Block index of the file
+     */
+    private LZWBlockIndex index;
+    /**
+     * Decoded blocks in access order, the eldest block is dropped when the cache is full
+     */
+    private LinkedHashMap<Integer, byte[]> cache;
+
+    /**
+     * Constructor method
+     * @param file compressed file in the block format
+     * @param cacheBlocks max number of decoded blocks in the cache
+     * @throws IOException exception
+     */
+    public LZWSeekableReader(String file, int cacheBlocks) throws IOException {
+        this(file, cacheBlocks, null);
+    }
+
+    /**
+     * Constructor method
+     * @param file compressed file in the block format
+     * @param cacheBlocks max number of decoded blocks in the cache
+     * @param presetDictionary dictionary named by the header, null for none
+     * @throws IOException exception
+     */
+    public LZWSeekableReader(String file, int cacheBlocks, LZWPresetDictionary presetDictionary)
+            throws IOException {
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+        try {
+            BufferedInputStream inputStream = new BufferedInputStream(Channels.newInputStream(channel));
+            if (LZWCompression.readFormat(inputStream) != LZWCompression.FORMAT_BLOCK) {
+                throw new IOException("Only the block format is seekable");
+            }
+            index = LZWBlockIndex.read(new DataInputStream(inputStream), presetDictionary);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        cache = new LinkedHashMap<Integer, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return size() > cacheBlocks;
+            }
+        };
+    }
+
+    /**
+     * Get the number of original bytes
+     * @return original length
+     */
+    public long length() {
+        return index.getLength();
+    }
+
+    /**
+     * Read a range of the original bytes, the range is cut at the end of the file.
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return bytes of the range
+     * @throws IOException exception
+     */
+    public synchronized byte[] readRange(long offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset > index.getLength()) {
+            throw new IllegalArgumentException("Range out of the file");
+        }
+        byte[] output = new byte[(int) Math.min(length, index.getLength() - offset)];
+        int count = 0;
+        while (count < output.length) {
+            long position = offset + count;
+            int block = (int) (position / index.getBlockSize());
+            int start = (int) (position - (long) block * index.getBlockSize());
+            byte[] data = getBlock(block);
+            int n = Math.min(output.length - count, data.length - start);
+            System.arraycopy(data, start, output, count, n);
+            count += n;
+        }
+        return output;
+    }
+
+    /**
+     * Get a decoded block from the cache, or read and decode it.
+     * @param block block index
+     * @return original bytes of the block
+     * @throws IOException exception
+     */
+    private byte[] getBlock(int block) throws IOException {
+        byte[] data = cache.get(block);
+        if (data != null) {
+            return data;
+        }
+        byte[] compressed = LZWBlockCompressor.readFully(channel, index.getCompressedLength(block),
+                index.getOffset(block));
+        try {
+            data = LZWBlockCompressor.decompressBlock(compressed, index.getBlockLength(block),
+                    index.getOptions());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        cache.put(block, data);
+        return data;
+    }
+
+    /**
+     * Close the file.
+     * @throws IOException exception
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+}
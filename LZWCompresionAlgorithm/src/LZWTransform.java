@@ -0,0 +1,296 @@
+import java.util.Arrays;
+
+/**
+ * Reversible transforms applied to a block before LZW. Run-length coding shortens long runs of the same byte, and
+ * Burrows-Wheeler followed by move-to-front turns repeated structure into runs of small values. The transform of a
+ * block is kept in the high bits of its method byte, see LZWBlockCompressor.
+ */
+public class LZWTransform {
+    /**
+     * No transform
+     */
+    public static final int NONE = 0;
+    /**
+     * Run-length coding, a run of four equal bytes is followed by the number of further repeats
+     */
+    public static final int RLE = 1;
+    /**
+     * Burrows-Wheeler transform of the cyclic shifts followed by move-to-front, the primary index comes first
+     */
+    public static final int BWT_MTF = 2;
+    /**
+     * Number of equal bytes that start a run
+     */
+    private static final int RUN_START = 4;
+
+    /**
+     * Apply the transform to the bytes
+     * @param transform transform
+     * @param data original bytes
+     * @param length number of original bytes
+     * @return transformed bytes
+     */
+    public static byte[] forward(int transform, byte[] data, int length) {
+        if (transform == RLE) {
+            return encodeRuns(data, length);
+        }
+        if (transform == BWT_MTF) {
+            return moveToFront(burrowsWheeler(data, length), 4);
+        }
+        return Arrays.copyOf(data, length);
+    }
+
+    /**
+     * Invert the transform
+     * @param transform transform
+     * @param data transformed bytes
+     * @param length number of original bytes
+     * @return original bytes
+     * @throws IllegalArgumentException if the bytes were not made by the transform
+     */
+    public static byte[] inverse(int transform, byte[] data, int length) {
+        if (transform == RLE) {
+            return decodeRuns(data, length);
+        }
+        if (transform == BWT_MTF) {
+            return inverseBurrowsWheeler(inverseMoveToFront(data, 4), length);
+        }
+        if (transform != NONE || data.length != length) {
+            throw new IllegalArgumentException("Unknown transform " + transform);
+        }
+        return data;
+    }
+
+    /**
+     * Run-length code the bytes
+     * @param data original bytes
+     * @param length number of original bytes
+     * @return coded bytes
+     */
+    private static byte[] encodeRuns(byte[] data, int length) {
+        byte[] output = new byte[length + length / RUN_START + 1];
+        int size = 0;
+        int i = 0;
+        while (i < length) {
+            byte b = data[i];
+            int run = 1;
+            while (i + run < length && data[i + run] == b && run < RUN_START + 255) {
+                run++;
+            }
+            if (run >= RUN_START) {
+                Arrays.fill(output, size, size + RUN_START, b);
+                size += RUN_START;
+                output[size++] = (byte) (run - RUN_START);
+            } else {
+                Arrays.fill(output, size, size + run, b);
+                size += run;
+            }
+            i += run;
+        }
+        return Arrays.copyOf(output, size);
+    }
+
+    /**
+     * Decode run-length coded bytes
+     * @param data coded bytes
+     * @param length number of original bytes
+     * @return original bytes
+     */
+    private static byte[] decodeRuns(byte[] data, int length) {
+        byte[] output = new byte[length];
+        int size = 0;
+        int i = 0;
+        while (i < data.length) {
+            byte b = data[i];
+            int run = 1;
+            while (i + run < data.length && data[i + run] == b && run < RUN_START) {
+                run++;
+            }
+            i += run;
+            if (run == RUN_START) {
+                if (i == data.length) {
+                    throw new IllegalArgumentException("Missing run length");
+                }
+                run += data[i++] & 0xFF;
+            }
+            if (size + run > length) {
+                throw new IllegalArgumentException("Run-length data longer than the block");
+            }
+            Arrays.fill(output, size, size + run, b);
+            size += run;
+        }
+        if (size != length) {
+            throw new IllegalArgumentException("Run-length data shorter than the block");
+        }
+        return output;
+    }
+
+    /**
+     * Burrows-Wheeler transform of the cyclic shifts. The shifts are sorted by prefix doubling with counting sorts,
+     * which takes O(n log n) time whatever the data.
+     * @param data original bytes
+     * @param length number of original bytes
+     * @return primary index in 4 bytes followed by the last column
+     */
+    private static byte[] burrowsWheeler(byte[] data, int length) {
+        byte[] output = new byte[4 + length];
+        if (length == 0) {
+            return output;
+        }
+        int[] order = new int[length];
+        int[] classes = new int[length];
+        int[] counts = new int[Math.max(256, length)];
+        // sort the shifts by their first byte
+        for (int i = 0; i < length; i++) {
+            counts[data[i] & 0xFF]++;
+        }
+        for (int i = 1; i < 256; i++) {
+            counts[i] += counts[i - 1];
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            order[--counts[data[i] & 0xFF]] = i;
+        }
+        int classCount = 1;
+        for (int i = 1; i < length; i++) {
+            if (data[order[i]] != data[order[i - 1]]) {
+                classCount++;
+            }
+            classes[order[i]] = classCount - 1;
+        }
+        // sort by the first 2h bytes from the order by the first h bytes
+        int[] nextOrder = new int[length];
+        int[] nextClasses = new int[length];
+        for (int h = 1; h < length && classCount < length; h <<= 1) {
+            for (int i = 0; i < length; i++) {
+                nextOrder[i] = order[i] - h < 0 ? order[i] - h + length : order[i] - h;
+            }
+            Arrays.fill(counts, 0, classCount, 0);
+            for (int i = 0; i < length; i++) {
+                counts[classes[nextOrder[i]]]++;
+            }
+            for (int i = 1; i < classCount; i++) {
+                counts[i] += counts[i - 1];
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                order[--counts[classes[nextOrder[i]]]] = nextOrder[i];
+            }
+            nextClasses[order[0]] = 0;
+            classCount = 1;
+            for (int i = 1; i < length; i++) {
+                int current = order[i] + h < length ? order[i] + h : order[i] + h - length;
+                int previous = order[i - 1] + h < length ? order[i - 1] + h : order[i - 1] + h - length;
+                if (classes[order[i]] != classes[order[i - 1]] || classes[current] != classes[previous]) {
+                    classCount++;
+                }
+                nextClasses[order[i]] = classCount - 1;
+            }
+            int[] swap = classes;
+            classes = nextClasses;
+            nextClasses = swap;
+        }
+        int primary = 0;
+        for (int i = 0; i < length; i++) {
+            if (order[i] == 0) {
+                primary = i;
+            }
+            output[4 + i] = data[order[i] == 0 ? length - 1 : order[i] - 1];
+        }
+        output[0] = (byte) (primary >>> 24);
+        output[1] = (byte) (primary >>> 16);
+        output[2] = (byte) (primary >>> 8);
+        output[3] = (byte) primary;
+        return output;
+    }
+
+    /**
+     * Invert the Burrows-Wheeler transform by walking the last-to-first mapping from the primary index
+     * @param data primary index in 4 bytes followed by the last column
+     * @param length number of original bytes
+     * @return original bytes
+     */
+    private static byte[] inverseBurrowsWheeler(byte[] data, int length) {
+        if (data.length != 4 + length) {
+            throw new IllegalArgumentException("Burrows-Wheeler data of the wrong length");
+        }
+        byte[] output = new byte[length];
+        if (length == 0) {
+            return output;
+        }
+        int primary = ((data[0] & 0xFF) << 24) | ((data[1] & 0xFF) << 16) | ((data[2] & 0xFF) << 8)
+                | (data[3] & 0xFF);
+        if (primary < 0 || primary >= length) {
+            throw new IllegalArgumentException("Invalid primary index");
+        }
+        int[] starts = new int[256];
+        for (int i = 0; i < length; i++) {
+            starts[data[4 + i] & 0xFF]++;
+        }
+        for (int i = 0, sum = 0; i < 256; i++) {
+            int count = starts[i];
+            starts[i] = sum;
+            sum += count;
+        }
+        // the k-th occurrence of a byte in the last column is the k-th row that starts with it
+        int[] lastToFirst = new int[length];
+        for (int i = 0; i < length; i++) {
+            lastToFirst[i] = starts[data[4 + i] & 0xFF]++;
+        }
+        int row = primary;
+        for (int i = length - 1; i >= 0; i--) {
+            output[i] = data[4 + row];
+            row = lastToFirst[row];
+        }
+        return output;
+    }
+
+    /**
+     * Replace every byte with its index in a list of recently used bytes, and move it to the front of the list
+     * @param data bytes, changed in place
+     * @param offset index of the first byte to code
+     * @return the same array
+     */
+    private static byte[] moveToFront(byte[] data, int offset) {
+        byte[] list = newList();
+        for (int i = offset; i < data.length; i++) {
+            byte b = data[i];
+            int index = 0;
+            while (list[index] != b) {
+                index++;
+            }
+            System.arraycopy(list, 0, list, 1, index);
+            list[0] = b;
+            data[i] = (byte) index;
+        }
+        return data;
+    }
+
+    /**
+     * Invert the move-to-front coding
+     * @param data coded bytes, changed in place
+     * @param offset index of the first coded byte
+     * @return the same array
+     */
+    private static byte[] inverseMoveToFront(byte[] data, int offset) {
+        byte[] list = newList();
+        for (int i = offset; i < data.length; i++) {
+            int index = data[i] & 0xFF;
+            byte b = list[index];
+            System.arraycopy(list, 0, list, 1, index);
+            list[0] = b;
+            data[i] = b;
+        }
+        return data;
+    }
+
+    /**
+     * Create the list of the bytes in order
+     * @return list of the 256 bytes
+     */
+    private static byte[] newList() {
+        byte[] list = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            list[i] = (byte) i;
+        }
+        return list;
+    }
+}
@@ -0,0 +1,285 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * MapBenchmark compares the boxed MyHashMap with the primitive maps IntObjectMap, ObjectIntMap and IntIntMap, and
+ * with java.util.HashMap, on LZW-like entries: codes from 256 up and short strings. For every map it prints the heap
+ * bytes per entry, measured after garbage collection and not counting the strings, and the lookups per second over
+ * the keys in random order, the best of a few rounds. MyHashMap and java.util.HashMap are also compared on removing
+ * and putting back every key and on iterating the entries.
+ */
+public class MapBenchmark {
+    /**
+     * Number of entries when no argument is given
+     */
+    private static final int DEFAULT_ENTRIES = 1 << 20;
+    /**
+     * Number of timed rounds of lookups
+     */
+    private static final int ROUNDS = 10;
+    /**
+     * Number of garbage collections before reading the used heap
+     */
+    private static final int GC_ROUNDS = 10;
+    /**
+     * Codes used as keys or values
+     */
+    private int[] codes;
+    /**
+     * Strings used as keys or values
+     */
+    private String[] strings;
+    /**
+     * Order of the lookups
+     */
+    private int[] order;
+    /**
+     * Sum of the lookup results, printed so the lookups cannot be removed
+     */
+    private long sink;
+
+    /**
+     * Constructor method
+     * @param entries number of entries
+     */
+    public MapBenchmark(int entries) {
+        codes = new int[entries];
+        strings = new String[entries];
+        order = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            codes[i] = 256 + i;
+            strings[i] = "w" + Integer.toString(i * 31, 36);
+            order[i] = i;
+        }
+        Random random = new Random(42);
+        for (int i = entries - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+    }
+
+    /**
+     * The main method.
+     * Usage: [entries]
+     * @param args args
+     */
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTRIES;
+        MapBenchmark benchmark = new MapBenchmark(entries);
+        System.out.printf("%d entries%n", entries);
+        benchmark.myHashMapIntegerString();
+        benchmark.intObjectMap();
+        benchmark.myHashMapStringInteger();
+        benchmark.objectIntMap();
+        benchmark.myHashMapIntegerInteger();
+        benchmark.hashMapIntegerInteger();
+        benchmark.intIntMap();
+        benchmark.churn("MyHashMap<Integer,Integer>", new MyHashMap<>());
+        benchmark.churn("HashMap<Integer,Integer>", new HashMap<>());
+        System.out.println(benchmark.sink == 0 ? "" : "done");
+    }
+
+    /**
+     * Measure MyHashMap from boxed code to string, the map of the decompressor
+     */
+    private void myHashMapIntegerString() {
+        long before = usedMemory();
+        MyHashMap<Integer, String> map = new MyHashMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            map.put(codes[i], strings[i]);
+        }
+        long bytes = usedMemory() - before;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i : order) {
+                sink += map.get(codes[i]).length();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report("MyHashMap<Integer,String>", bytes, best);
+    }
+
+    /**
+     * Measure IntObjectMap from code to string
+     */
+    private void intObjectMap() {
+        long before = usedMemory();
+        IntObjectMap<String> map = new IntObjectMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            map.put(codes[i], strings[i]);
+        }
+        long bytes = usedMemory() - before;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i : order) {
+                sink += map.get(codes[i]).length();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report("IntObjectMap<String>", bytes, best);
+    }
+
+    /**
+     * Measure MyHashMap from string to boxed code, the map of the compressor
+     */
+    private void myHashMapStringInteger() {
+        long before = usedMemory();
+        MyHashMap<String, Integer> map = new MyHashMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            map.put(strings[i], codes[i]);
+        }
+        long bytes = usedMemory() - before;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i : order) {
+                sink += map.get(strings[i]);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report("MyHashMap<String,Integer>", bytes, best);
+    }
+
+    /**
+     * Measure ObjectIntMap from string to code
+     */
+    private void objectIntMap() {
+        long before = usedMemory();
+        ObjectIntMap<String> map = new ObjectIntMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            map.put(strings[i], codes[i]);
+        }
+        long bytes = usedMemory() - before;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i : order) {
+                sink += map.getOrDefault(strings[i], -1);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report("ObjectIntMap<String>", bytes, best);
+    }
+
+    /**
+     * Measure MyHashMap from boxed packed key (prefix code, byte) to boxed code
+     */
+    private void myHashMapIntegerInteger() {
+        long before = usedMemory();
+        MyHashMap<Integer, Integer> map = new MyHashMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            map.put(codes[i] << 8, codes[i]);
+        }
+        long bytes = usedMemory() - before;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i : order) {
+                sink += map.get(codes[i] << 8);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report("MyHashMap<Integer,Integer>", bytes, best);
+    }
+
+    /**
+     * Measure java.util.HashMap from boxed packed key to boxed code, for reference
+     */
+    private void hashMapIntegerInteger() {
+        long before = usedMemory();
+        HashMap<Integer, Integer> map = new HashMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            map.put(codes[i] << 8, codes[i]);
+        }
+        long bytes = usedMemory() - before;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i : order) {
+                sink += map.get(codes[i] << 8);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report("HashMap<Integer,Integer>", bytes, best);
+    }
+
+    /**
+     * Measure IntIntMap from packed key to code, the map of LZWEncoderDictionary
+     */
+    private void intIntMap() {
+        long before = usedMemory();
+        IntIntMap map = new IntIntMap();
+        for (int i = 0; i < codes.length; i++) {
+            map.put(codes[i] << 8, codes[i]);
+        }
+        long bytes = usedMemory() - before;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i : order) {
+                sink += map.getOrDefault(codes[i] << 8, -1);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report("IntIntMap", bytes, best);
+    }
+
+    /**
+     * Measure a map whose entries come and go: every key is removed and put back, then the entries are iterated
+     * @param name name of the map
+     * @param map empty map
+     */
+    private void churn(String name, Map<Integer, Integer> map) {
+        for (int i = 0; i < codes.length; i++) {
+            map.put(codes[i] << 8, codes[i]);
+        }
+        long churnTime = Long.MAX_VALUE;
+        long iterationTime = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i : order) {
+                sink += map.remove(codes[i] << 8);
+                map.put(codes[i] << 8, codes[i]);
+            }
+            churnTime = Math.min(churnTime, System.nanoTime() - start);
+            start = System.nanoTime();
+            for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+                sink += entry.getValue();
+            }
+            iterationTime = Math.min(iterationTime, System.nanoTime() - start);
+        }
+        System.out.printf("%-28s %8.1f M remove+put/s %8.1f M entries iterated/s%n", name,
+                codes.length * 1e3 / churnTime, codes.length * 1e3 / iterationTime);
+    }
+
+    /**
+     * Print the result of one map
+     * @param name name of the map
+     * @param bytes heap bytes of the map
+     * @param nanos best time of one round of lookups
+     */
+    private void report(String name, long bytes, long nanos) {
+        System.out.printf("%-28s %6.1f bytes/entry %8.1f M lookups/s%n", name, (double) bytes / codes.length,
+                codes.length * 1e3 / nanos);
+    }
+
+    /**
+     * Get the heap bytes in use after garbage collection, the least of a few collections as the garbage of the
+     * previous map may outlive the first ones
+     * @return used bytes
+     */
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * MappedInputStream reads a file through memory-mapped windows of the file channel. The end of the file is found from
+ * the file size, and a file larger than one mapping is mapped one window after another.
+ */
+public class MappedInputStream extends InputStream {
+    /**
+     * Size of a mapped window
+     */
+    public static final int WINDOW_SIZE = 1 << 28;
+    /**
+     * File channel
+     */
+    private FileChannel channel;
+    /**
+     * Size of the file
+     */
+    private long size;
+    /**
+     * File offset of the current window
+     */
+    private long windowOffset;
+    /**
+     * Current window
+     */
+    private MappedByteBuffer window;
+    /**
+     * File offset saved by mark
+     */
+    private long markOffset;
+
+    /**
+     * Constructor method
+     * @param channel file channel, read from the start
+     * @throws IOException exception
+     */
+    public MappedInputStream(FileChannel channel) throws IOException {
+        this.channel = channel;
+        size = channel.size();
+        map(0);
+    }
+
+    /**
+     * Get the next window, mapping it if the current one is used up
+     * @return the window with bytes left, or null at the end of the file
+     * @throws IOException exception
+     */
+    public MappedByteBuffer nextWindow() throws IOException {
+        if (!window.hasRemaining()) {
+            long next = windowOffset + window.limit();
+            if (next >= size) {
+                return null;
+            }
+            map(next);
+        }
+        return window;
+    }
+
+    /**
+     * Read one byte
+     * @return the byte, or -1 at the end of the file
+     * @throws IOException exception
+     */
+    @Override
+    public int read() throws IOException {
+        MappedByteBuffer buffer = nextWindow();
+        return buffer == null ? -1 : buffer.get() & 0xFF;
+    }
+
+    /**
+     * Read bytes into the array with a bulk copy from the window
+     * @param b array
+     * @param off index of the first byte to write
+     * @param len max number of bytes
+     * @return number of bytes read, or -1 at the end of the file
+     * @throws IOException exception
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        MappedByteBuffer buffer = nextWindow();
+        if (buffer == null) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    /**
+     * Get the number of bytes left in the file
+     * @return number of bytes left, at most Integer.MAX_VALUE
+     */
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, size - windowOffset - window.position());
+    }
+
+    /**
+     * Mark is supported
+     * @return true
+     */
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Save the current file offset
+     * @param readlimit ignored, any number of bytes may be read before reset
+     */
+    @Override
+    public synchronized void mark(int readlimit) {
+        markOffset = windowOffset + window.position();
+    }
+
+    /**
+     * Go back to the file offset saved by mark
+     * @throws IOException exception
+     */
+    @Override
+    public synchronized void reset() throws IOException {
+        if (markOffset >= windowOffset && markOffset <= windowOffset + window.limit()) {
+            window.position((int) (markOffset - windowOffset));
+        } else {
+            map(markOffset);
+        }
+    }
+
+    /**
+     * Close the channel
+     * @throws IOException exception
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Map the window starting at the file offset
+     * @param offset file offset
+     * @throws IOException exception
+     */
+    private void map(long offset) throws IOException {
+        windowOffset = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, size - offset));
+    }
+}
@@ -1,60 +1,184 @@
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
 /**
- * HashMap class implemented by linked list
+ * HashMap class implemented by open addressing. The keys and the values are kept side by side in one array, so a
+ * lookup reads the slot of the key and usually the next few slots in the same cache line. The table is probed
+ * linearly and doubles when it gets more than half full. Putting a key that is already in the map replaces its value
+ * in place. Removing a key shifts back the entries after it whose probe passed its slot, so the table never needs
+ * cleaning. Null keys are not allowed, null values are. In the incremental mode the old table is kept beside the
+ * doubled one and every put, get, containsKey and remove first moves a few old slots, so no single call rehashes the
+ * whole map. The old slots are moved in index order and a probe of the old table jumps over the moved ones, which
+ * are empty now but were on the probe paths of the others. New keys only go to the new table and a key removed from
+ * the old table leaves a tombstone there. The iterators and spliterators of the views are fail-fast, creating one
+ * finishes the rehash in progress.
  * @param <K> key
  * @param <V> value
  */
-public class MyHashMap<K,V> {
+public class MyHashMap<K,V> extends AbstractMap<K,V> implements Map<K,V> {
+    /**
+     * Number of slots of a map created without a size
+     */
+    public static final int DEFAULT_SIZE = 16;
+    /**
+     * The table doubles when the entries would fill more than this part of the slots
+     */
+    private static final double MAX_LOAD_FACTOR = 0.5;
+    /**
+     * Number of old slots moved by every call in the incremental mode, at least 2 so the old table is empty before
+     * the new one gets full
+     */
+    private static final int REHASH_SLOTS = 16;
+    /**
+     * Key of an old slot whose entry was removed, it equals no key so probes go on past it
+     */
+    private static final Object TOMBSTONE = new Object();
+    /**
+     * Table, slot i keeps the key at 2*i and the value at 2*i+1, a null key marks an empty slot
+     */
+    private Object[] table;
     /**
-     * Size of the hashMap
+     * Number of slots of the table
      */
     private int size;
     /**
-     * Linked list array
+     * Shift used by the hash function
+     */
+    private int shift;
+    /**
+     * Number of entries
+     */
+    private int count;
+    /**
+     * Number of entries at which the table doubles
+     */
+    private int threshold;
+    /**
+     * Number of structural changes, used by the iterators to detect concurrent changes
+     */
+    private int modCount;
+    /**
+     * Whether the table is rehashed a few slots at a time
+     */
+    private boolean incremental;
+    /**
+     * Table being moved to the new table, null when no rehash is in progress
+     */
+    private Object[] oldTable;
+    /**
+     * Number of slots of the old table
+     */
+    private int oldSize;
+    /**
+     * Shift used by the hash function of the old table
+     */
+    private int oldShift;
+    /**
+     * Old slots below this index have been moved
+     */
+    private int rehashIndex;
+
+    /**
+     * Constructor method with DEFAULT_SIZE slots
      */
-    private MyLinkedList[] myLinkedLists;
+    public MyHashMap() {
+        this(DEFAULT_SIZE);
+    }
 
     /**
      * Constructor method
-     * @param size size of the linked list
+     * @param size initial number of slots, rounded up to a power of two
      */
     public MyHashMap(int size) {
-        this.size = size;
-        myLinkedLists = new MyLinkedList[size];
-        for(int i=0;i<size;i++) {
-            myLinkedLists[i] = new MyLinkedList();
+        this(size, false);
+    }
+
+    /**
+     * Constructor method
+     * @param size initial number of slots, rounded up to a power of two
+     * @param incremental whether the table is rehashed a few slots per call instead of all at once
+     */
+    public MyHashMap(int size, boolean incremental) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
         }
+        this.incremental = incremental;
+        allocate(Math.max(2, Integer.highestOneBit(Math.min(size, 1 << 29) - 1) << 1));
     }
 
     /**
-     * Put new k-v pairs to hashMap
-     * @param key key
+     * Put new k-v pairs to hashMap, a key already in the map gets the new value
+     * @param key key, not null
      * @param value value
+     * @return former value of the key, null when the key was not in the map
      */
-    public void put(K key, V value) {
-        int index = getIndex(key);
-        KVPairs newPair = new KVPairs(key, value);
-        myLinkedLists[index].addAtTail(newPair);
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        Objects.requireNonNull(key, "Null keys are not allowed");
+        rehashStep();
+        int index = find(key);
+        if (table[index << 1] != null) {
+            V former = (V) table[(index << 1) + 1];
+            table[(index << 1) + 1] = value;
+            return former;
+        }
+        if (oldTable != null) {
+            int oldIndex = findOld(key);
+            if (oldIndex != -1) {
+                V former = (V) oldTable[(oldIndex << 1) + 1];
+                oldTable[(oldIndex << 1) + 1] = value;
+                return former;
+            }
+        }
+        if (count + 1 > threshold) {
+            if (!incremental) {
+                resize(size << 1);
+            } else {
+                startRehash();
+            }
+            index = find(key);
+        }
+        table[index << 1] = key;
+        table[(index << 1) + 1] = value;
+        count++;
+        modCount++;
+        return null;
     }
 
     /**
      * Get the value by the input key in the hashMap
      * @param key key
-     * @return value by the input key in the hashMap
+     * @return value by the input key in the hashMap, null when the key is not in the map
      */
-    public V get(K key) {
-        int index = getIndex(key);
-        if(index >= size || index< 0) {
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
             return null;
         }
-        MyLinkedList curLinkedList = myLinkedLists[index];
-        curLinkedList.reset();
-        while (curLinkedList.hasNext()) {
-            KVPairs e = (KVPairs) curLinkedList.next();
-            if(e.getKey().equals(key)) {
-                return (V) e.getVal();
-            }
+        rehashStep();
+        int index = find(key);
+        if (table[index << 1] == null && oldTable != null) {
+            int oldIndex = findOld(key);
+            return oldIndex == -1 ? null : (V) oldTable[(oldIndex << 1) + 1];
         }
-        return null;
+        return (V) table[(index << 1) + 1];
     }
 
     /**
@@ -62,36 +186,768 @@ public class MyHashMap<K,V> {
      * @param key key
      * @return whether the hashMap contains the key
      */
-    public boolean containsKey(K key) {
-        int index = getIndex(key);
-        if(index >= size || index< 0) {
-            return  false;
+    @Override
+    public boolean containsKey(Object key) {
+        if (key == null) {
+            return false;
         }
-        MyLinkedList curLinkedList = myLinkedLists[index];
-        curLinkedList.reset();
-        while (curLinkedList.hasNext()) {
-            KVPairs e = (KVPairs) curLinkedList.next();
-            if(e.getKey().equals(key)) {
-                return true;
+        rehashStep();
+        return table[find(key) << 1] != null || (oldTable != null && findOld(key) != -1);
+    }
+
+    /**
+     * Check whether some key of the hashMap has the value
+     * @param value value
+     * @return whether the hashMap contains the value
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        return containsValue(table, value) || (oldTable != null && containsValue(oldTable, value));
+    }
+
+    /**
+     * Remove the key from the hashMap
+     * @param key key
+     * @return former value of the key, null when the key was not in the map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        rehashStep();
+        int index = find(key);
+        if (table[index << 1] != null) {
+            V former = (V) table[(index << 1) + 1];
+            removeSlot(index, null);
+            return former;
+        }
+        if (oldTable != null) {
+            int oldIndex = findOld(key);
+            if (oldIndex != -1) {
+                V former = (V) oldTable[(oldIndex << 1) + 1];
+                oldTable[oldIndex << 1] = TOMBSTONE;
+                oldTable[(oldIndex << 1) + 1] = null;
+                count--;
+                modCount++;
+                return former;
             }
         }
-        return false;
+        return null;
     }
 
     /**
-     * Get the index of the key of the linked list array
+     * Get the number of entries
+     * @return number of entries
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Remove every entry, the table keeps its size
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(table, null);
+        oldTable = null;
+        count = 0;
+        modCount++;
+    }
+
+    /**
+     * Call the action on every entry
+     * @param action action
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        finishRehash();
+        int expectedModCount = modCount;
+        Object[] tab = table;
+        for (int i = 0; i < tab.length && modCount == expectedModCount; i += 2) {
+            if (tab[i] != null) {
+                action.accept((K) tab[i], (V) tab[i + 1]);
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Get the keys, backed by the map
+     * @return set of the keys
+     */
+    @Override
+    public Set<K> keySet() {
+        return new KeySet();
+    }
+
+    /**
+     * Get the values, backed by the map
+     * @return collection of the values
+     */
+    @Override
+    public Collection<V> values() {
+        return new Values();
+    }
+
+    /**
+     * Get the entries, backed by the map
+     * @return set of the entries
+     */
+    @Override
+    public Set<Map.Entry<K,V>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * Get the slot where the probe for the key starts
      * @param key key
-     * @return the index of the key of the linked list array
+     * @return the index of the home slot of the key
      */
     public int getIndex(K key) {
-        return (key.hashCode() & 0x7FFFFFFF) % size;
+        return hash(key, shift);
     }
 
     /**
-     * Get the size of linked list array
-     * @return size of linked list array
+     * Get the number of slots of the table
+     * @return number of slots
      */
     public int getSize(){
         return size;
     }
+
+    /**
+     * Hash the key to a slot
+     * @param key key
+     * @param shift shift of the table, 32 minus the number of index bits
+     * @return slot index
+     */
+    private static int hash(Object key, int shift) {
+        return (key.hashCode() * 0x9E3779B1) >>> shift;
+    }
+
+    /**
+     * Find the slot of the key, or the empty slot where the probe for it stops
+     * @param key key
+     * @return slot index
+     */
+    private int find(Object key) {
+        int mask = size - 1;
+        int index = hash(key, shift);
+        while (true) {
+            Object k = table[index << 1];
+            if (k == null || k.equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Find the slot of the key in the old table
+     * @param key key
+     * @return slot index, or -1 when the key is not in the old table
+     */
+    private int findOld(Object key) {
+        int mask = oldSize - 1;
+        int index = hash(key, oldShift);
+        // a probe that finds no empty slot stops after visiting every slot
+        for (int n = 0; n < oldSize; n++) {
+            if (index < rehashIndex) {
+                index = rehashIndex;
+            }
+            Object k = oldTable[index << 1];
+            if (k == null) {
+                return -1;
+            }
+            if (k.equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Check whether some key of the table has the value
+     * @param tab table or old table
+     * @param value value
+     * @return whether the table contains the value
+     */
+    private static boolean containsValue(Object[] tab, Object value) {
+        for (int i = 0; i < tab.length; i += 2) {
+            if (tab[i] != null && tab[i] != TOMBSTONE && Objects.equals(tab[i + 1], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Empty the slot and move back the entries after it whose probe passes it, until an empty slot. An entry may
+     * wrap from the start of the table to a slot at or above the emptied one.
+     * @param slot slot index
+     * @param wrapped list that gets the keys which wrapped, null if not needed
+     */
+    @SuppressWarnings("unchecked")
+    private void removeSlot(int slot, List<K> wrapped) {
+        int mask = size - 1;
+        int hole = slot;
+        int index = (slot + 1) & mask;
+        while (table[index << 1] != null) {
+            int home = hash(table[index << 1], shift);
+            // the entry may move when the hole lies on its probe, between its home slot and its slot
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                if (wrapped != null && index < slot && hole >= slot) {
+                    wrapped.add((K) table[index << 1]);
+                }
+                table[hole << 1] = table[index << 1];
+                table[(hole << 1) + 1] = table[(index << 1) + 1];
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+        table[hole << 1] = null;
+        table[(hole << 1) + 1] = null;
+        count--;
+        modCount++;
+    }
+
+    /**
+     * Keep the full table as the old table and start moving it to a table of twice the size. A rehash still in
+     * progress is finished first.
+     */
+    private void startRehash() {
+        finishRehash();
+        oldTable = table;
+        oldSize = size;
+        oldShift = shift;
+        rehashIndex = 0;
+        allocate(size << 1);
+    }
+
+    /**
+     * Move what is left of the old table to the new table
+     */
+    private void finishRehash() {
+        while (oldTable != null) {
+            rehashStep();
+        }
+    }
+
+    /**
+     * Move the next REHASH_SLOTS slots of the old table to the new table
+     */
+    private void rehashStep() {
+        if (oldTable == null) {
+            return;
+        }
+        int end = Math.min(rehashIndex + REHASH_SLOTS, oldSize);
+        for (; rehashIndex < end; rehashIndex++) {
+            int i = rehashIndex << 1;
+            if (oldTable[i] != null) {
+                if (oldTable[i] != TOMBSTONE) {
+                    int index = find(oldTable[i]);
+                    table[index << 1] = oldTable[i];
+                    table[(index << 1) + 1] = oldTable[i + 1];
+                }
+                oldTable[i] = null;
+                oldTable[i + 1] = null;
+            }
+        }
+        if (rehashIndex == oldSize) {
+            oldTable = null;
+        }
+    }
+
+    /**
+     * Move every entry to a new table
+     * @param newSize number of slots of the new table
+     */
+    private void resize(int newSize) {
+        Object[] oldTable = table;
+        allocate(newSize);
+        for (int i = 0; i < oldTable.length; i += 2) {
+            if (oldTable[i] != null) {
+                int index = find(oldTable[i]);
+                table[index << 1] = oldTable[i];
+                table[(index << 1) + 1] = oldTable[i + 1];
+            }
+        }
+    }
+
+    /**
+     * Allocate an empty table
+     * @param newSize number of slots, a power of two
+     */
+    private void allocate(int newSize) {
+        size = newSize;
+        shift = 32 - Integer.numberOfTrailingZeros(newSize);
+        table = new Object[newSize << 1];
+        threshold = (int) (newSize * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Entry given by the entry set, setting its value writes through to the map while the key is in it
+     */
+    private final class TableEntry extends AbstractMap.SimpleEntry<K,V> {
+        /**
+         * Serial version
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor method
+         * @param key key
+         * @param value value
+         */
+        TableEntry(K key, V value) {
+            super(key, value);
+        }
+
+        /**
+         * Set the value of the entry and of its key in the map
+         * @param value value
+         * @return former value of the entry
+         */
+        @Override
+        public V setValue(V value) {
+            replace(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    /**
+     * Iterator over the table from the last slot down. Removing an entry only moves entries down the table, to
+     * slots already visited, except those that wrap from the start of the table to its end, which are kept in a list
+     * and visited after the table.
+     * @param <T> element
+     */
+    private final class TableIterator<T> implements Iterator<T> {
+        /**
+         * Makes the element from a key and its value
+         */
+        private final BiFunction<K, V, T> element;
+        /**
+         * Slots below this index are not visited yet
+         */
+        private int index;
+        /**
+         * Keys that wrapped past the iterator, null until one does
+         */
+        private List<K> wrapped;
+        /**
+         * Number of wrapped keys visited
+         */
+        private int wrappedIndex;
+        /**
+         * Key of the last element, null when there is none to remove
+         */
+        private K lastKey;
+        /**
+         * Slot of the last element, -1 when it came from the wrapped keys
+         */
+        private int lastSlot;
+        /**
+         * Number of structural changes the iterator knows of
+         */
+        private int expectedModCount;
+
+        /**
+         * Constructor method
+         * @param element makes the element from a key and its value
+         */
+        TableIterator(BiFunction<K, V, T> element) {
+            finishRehash();
+            this.element = element;
+            index = size;
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Check whether there is a next element
+         * @return whether there is a next element
+         */
+        @Override
+        public boolean hasNext() {
+            while (index > 0 && table[(index - 1) << 1] == null) {
+                index--;
+            }
+            return index > 0 || (wrapped != null && wrappedIndex < wrapped.size());
+        }
+
+        /**
+         * Get the next element
+         * @return next element
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (index > 0) {
+                lastSlot = --index;
+                lastKey = (K) table[index << 1];
+                return element.apply(lastKey, (V) table[(index << 1) + 1]);
+            }
+            lastSlot = -1;
+            lastKey = wrapped.get(wrappedIndex++);
+            return element.apply(lastKey, get(lastKey));
+        }
+
+        /**
+         * Remove the last element from the map
+         */
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (lastSlot == -1) {
+                MyHashMap.this.remove(lastKey);
+            } else {
+                if (wrapped == null) {
+                    wrapped = new ArrayList<>();
+                }
+                removeSlot(lastSlot, wrapped);
+            }
+            lastKey = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Spliterator over a range of slots of the table, split in halves
+     * @param <T> element
+     */
+    private final class TableSpliterator<T> implements Spliterator<T> {
+        /**
+         * Makes the element from a key and its value
+         */
+        private final BiFunction<K, V, T> element;
+        /**
+         * Characteristics of the elements
+         */
+        private final int characteristics;
+        /**
+         * Next slot
+         */
+        private int index;
+        /**
+         * Slot after the range
+         */
+        private final int fence;
+        /**
+         * Estimated number of elements left
+         */
+        private long estimate;
+        /**
+         * Number of structural changes the spliterator knows of
+         */
+        private final int expectedModCount;
+
+        /**
+         * Constructor method
+         * @param element makes the element from a key and its value
+         * @param characteristics characteristics of the elements
+         * @param index first slot
+         * @param fence slot after the range
+         * @param estimate estimated number of elements
+         * @param expectedModCount number of structural changes the spliterator knows of
+         */
+        TableSpliterator(BiFunction<K, V, T> element, int characteristics, int index, int fence, long estimate,
+                         int expectedModCount) {
+            this.element = element;
+            this.characteristics = characteristics;
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+            this.expectedModCount = expectedModCount;
+        }
+
+        /**
+         * Call the action on the next element
+         * @param action action
+         * @return whether there was a next element
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (index < fence) {
+                int i = index++ << 1;
+                if (table[i] != null) {
+                    action.accept(element.apply((K) table[i], (V) table[i + 1]));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Call the action on every element left
+         * @param action action
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            Object[] tab = table;
+            for (; index < fence && modCount == expectedModCount; index++) {
+                int i = index << 1;
+                if (tab[i] != null) {
+                    action.accept(element.apply((K) tab[i], (V) tab[i + 1]));
+                }
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        /**
+         * Split off the lower half of the slots left
+         * @return spliterator over the lower half, null when too few slots are left
+         */
+        @Override
+        public Spliterator<T> trySplit() {
+            int middle = (index + fence) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            estimate >>>= 1;
+            Spliterator<T> lower = new TableSpliterator<>(element, characteristics, index, middle, estimate,
+                    expectedModCount);
+            index = middle;
+            return lower;
+        }
+
+        /**
+         * Get the estimated number of elements left
+         * @return estimated number of elements
+         */
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        /**
+         * Get the characteristics of the elements
+         * @return characteristics
+         */
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+    }
+
+    /**
+     * Make a spliterator over the whole table, finishing the rehash in progress
+     * @param element makes the element from a key and its value
+     * @param characteristics characteristics of the elements
+     * @param <T> element
+     * @return spliterator
+     */
+    private <T> Spliterator<T> spliterator(BiFunction<K, V, T> element, int characteristics) {
+        finishRehash();
+        return new TableSpliterator<>(element, characteristics, 0, size, count, modCount);
+    }
+
+    /**
+     * Set view of the keys
+     */
+    private final class KeySet extends AbstractSet<K> {
+        /**
+         * Get the number of keys
+         * @return number of keys
+         */
+        @Override
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Check whether the map contains the key
+         * @param o key
+         * @return whether the map contains the key
+         */
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        /**
+         * Remove the key from the map
+         * @param o key
+         * @return whether the key was in the map
+         */
+        @Override
+        public boolean remove(Object o) {
+            if (!containsKey(o)) {
+                return false;
+            }
+            MyHashMap.this.remove(o);
+            return true;
+        }
+
+        /**
+         * Remove every entry of the map
+         */
+        @Override
+        public void clear() {
+            MyHashMap.this.clear();
+        }
+
+        /**
+         * Get an iterator over the keys
+         * @return iterator
+         */
+        @Override
+        public Iterator<K> iterator() {
+            return new TableIterator<>((k, v) -> k);
+        }
+
+        /**
+         * Get a spliterator over the keys
+         * @return spliterator
+         */
+        @Override
+        public Spliterator<K> spliterator() {
+            return MyHashMap.this.spliterator((k, v) -> k, Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+    }
+
+    /**
+     * Collection view of the values
+     */
+    private final class Values extends AbstractCollection<V> {
+        /**
+         * Get the number of values
+         * @return number of values
+         */
+        @Override
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Check whether some key of the map has the value
+         * @param o value
+         * @return whether the map contains the value
+         */
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+
+        /**
+         * Remove every entry of the map
+         */
+        @Override
+        public void clear() {
+            MyHashMap.this.clear();
+        }
+
+        /**
+         * Get an iterator over the values
+         * @return iterator
+         */
+        @Override
+        public Iterator<V> iterator() {
+            return new TableIterator<>((k, v) -> v);
+        }
+
+        /**
+         * Get a spliterator over the values
+         * @return spliterator
+         */
+        @Override
+        public Spliterator<V> spliterator() {
+            return MyHashMap.this.spliterator((k, v) -> v, 0);
+        }
+    }
+
+    /**
+     * Set view of the entries
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        /**
+         * Get the number of entries
+         * @return number of entries
+         */
+        @Override
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Check whether the map contains the key of the entry with the same value
+         * @param o entry
+         * @return whether the map contains the entry
+         */
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            Object key = e.getKey();
+            return containsKey(key) && Objects.equals(get(key), e.getValue());
+        }
+
+        /**
+         * Remove the entry from the map
+         * @param o entry
+         * @return whether the entry was in the map
+         */
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) {
+                return false;
+            }
+            MyHashMap.this.remove(((Map.Entry<?, ?>) o).getKey());
+            return true;
+        }
+
+        /**
+         * Remove every entry of the map
+         */
+        @Override
+        public void clear() {
+            MyHashMap.this.clear();
+        }
+
+        /**
+         * Get an iterator over the entries
+         * @return iterator
+         */
+        @Override
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new TableIterator<>(TableEntry::new);
+        }
+
+        /**
+         * Get a spliterator over the entries
+         * @return spliterator
+         */
+        @Override
+        public Spliterator<Map.Entry<K,V>> spliterator() {
+            return MyHashMap.this.spliterator(TableEntry::new, Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+    }
 }
@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+/**
+ * HashMap from object to int without boxing the values, built like MyHashMap. The keys and the values are kept in
+ * parallel object and int arrays, probed linearly, and the tables double when they get more than half full. A null
+ * key marks an empty slot, so null keys are not allowed. Putting a key that is already in the map replaces its
+ * value.
+ * @param <K> key
+ */
+public class ObjectIntMap<K> {
+    /**
+     * Number of slots of a map created without a size
+     */
+    public static final int DEFAULT_SIZE = 16;
+    /**
+     * The tables double when the entries would fill more than this part of the slots
+     */
+    private static final double MAX_LOAD_FACTOR = 0.5;
+    /**
+     * Key of every slot, null for an empty slot
+     */
+    private Object[] keys;
+    /**
+     * Value of every slot
+     */
+    private int[] values;
+    /**
+     * Shift used by the hash function
+     */
+    private int shift;
+    /**
+     * Number of entries
+     */
+    private int count;
+    /**
+     * Number of entries at which the tables double
+     */
+    private int threshold;
+
+    /**
+     * Constructor method with DEFAULT_SIZE slots
+     */
+    public ObjectIntMap() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructor method
+     * @param size initial number of slots, rounded up to a power of two
+     */
+    public ObjectIntMap(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        allocate(Math.max(2, Integer.highestOneBit(Math.min(size, 1 << 30) - 1) << 1));
+    }
+
+    /**
+     * Put the pair, a key already in the map gets the new value
+     * @param key key, not null
+     * @param value value
+     */
+    public void put(K key, int value) {
+        int index = find(key);
+        if (keys[index] == null) {
+            if (count + 1 > threshold) {
+                resize(keys.length << 1);
+                index = find(key);
+            }
+            keys[index] = key;
+            count++;
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Get the value of the key
+     * @param key key
+     * @param defaultValue value returned when the key is not in the map
+     * @return value of the key or the default value
+     */
+    public int getOrDefault(K key, int defaultValue) {
+        int index = find(key);
+        return keys[index] == null ? defaultValue : values[index];
+    }
+
+    /**
+     * Check whether the map contains the key
+     * @param key key
+     * @return whether the map contains the key
+     */
+    public boolean containsKey(K key) {
+        return keys[find(key)] != null;
+    }
+
+    /**
+     * Get the number of entries
+     * @return number of entries
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Remove every entry, the tables keep their size
+     */
+    public void clear() {
+        Arrays.fill(keys, null);
+        count = 0;
+    }
+
+    /**
+     * Find the slot of the key, or the empty slot where the probe for it stops
+     * @param key key
+     * @return slot index
+     */
+    private int find(Object key) {
+        int mask = keys.length - 1;
+        int index = (key.hashCode() * 0x9E3779B1) >>> shift;
+        while (true) {
+            Object k = keys[index];
+            if (k == null || k.equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Move every entry to new tables
+     * @param newSlots number of slots of the new tables
+     */
+    private void resize(int newSlots) {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newSlots);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int index = find(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Allocate empty tables
+     * @param newSlots number of slots, a power of two
+     */
+    private void allocate(int newSlots) {
+        shift = 32 - Integer.numberOfTrailingZeros(newSlots);
+        keys = new Object[newSlots];
+        values = new int[newSlots];
+        threshold = (int) (newSlots * MAX_LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * RangeDecoder reads the codes written by RangeEncoder, with the same bit trees and the same adaptation.
+ */
+public class RangeDecoder implements LZWCodeReader {
+    /**
+     * Size of the byte buffer
+     */
+    private static final int BUFFER_SIZE = 1 << 13;
+    /**
+     * Input stream
+     */
+    private InputStream in;
+    /**
+     * Size of the range, unsigned
+     */
+    private int range = -1;
+    /**
+     * Position of the coded value in the range, unsigned
+     */
+    private int code;
+    /**
+     * Whether the first bytes have been read
+     */
+    private boolean started;
+    /**
+     * Whether the end flag has been read
+     */
+    private boolean finished;
+    /**
+     * Probability of the flag that another code follows
+     */
+    private short[] more = RangeEncoder.newProbabilities(1);
+    /**
+     * Bit tree of every code width, created when the width is first used
+     */
+    private short[][] trees = new short[33][];
+    /**
+     * Bytes read from the input stream
+     */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    /**
+     * Index of the next byte in the buffer
+     */
+    private int bufferPosition;
+    /**
+     * Number of bytes in the buffer
+     */
+    private int bufferSize;
+
+    /**
+     * Constructor method
+     * @param in input stream
+     */
+    public RangeDecoder(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Decode a value of the given width
+     * @param width number of bits, 1 to 31
+     * @return the value, or -1 at the end of the codes
+     * @throws IOException exception
+     */
+    public int readBits(int width) throws IOException {
+        if (!started) {
+            started = true;
+            // the first byte is always zero
+            for (int i = 0; i < 5; i++) {
+                int b = readByte();
+                if (b == -1) {
+                    finished = true;
+                    break;
+                }
+                code = (code << 8) | b;
+            }
+        }
+        if (finished || decodeBit(more, 0) == 0) {
+            finished = true;
+            return -1;
+        }
+        int treeBits = Math.min(width, RangeEncoder.TREE_BITS);
+        if (trees[width] == null) {
+            trees[width] = RangeEncoder.newProbabilities(1 << treeBits);
+        }
+        short[] tree = trees[width];
+        int node = 1;
+        for (int i = 0; i < treeBits; i++) {
+            node = (node << 1) | decodeBit(tree, node);
+        }
+        int value = node - (1 << treeBits);
+        for (int i = treeBits; i < width; i++) {
+            value = (value << 1) | decodeDirectBit();
+        }
+        return value;
+    }
+
+    /**
+     * Close the input stream
+     * @throws IOException exception
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Decode one bit with an adaptive probability
+     * @param probabilities probabilities
+     * @param index index of the probability of a zero bit
+     * @return bit
+     * @throws IOException exception
+     */
+    private int decodeBit(short[] probabilities, int index) throws IOException {
+        int probability = probabilities[index];
+        int bound = (range >>> RangeEncoder.PROBABILITY_BITS) * probability;
+        int bit;
+        if (Integer.compareUnsigned(code, bound) < 0) {
+            range = bound;
+            probabilities[index] = (short) (probability
+                    + (((1 << RangeEncoder.PROBABILITY_BITS) - probability) >>> RangeEncoder.MOVE_BITS));
+            bit = 0;
+        } else {
+            code -= bound;
+            range -= bound;
+            probabilities[index] = (short) (probability - (probability >>> RangeEncoder.MOVE_BITS));
+            bit = 1;
+        }
+        while (Integer.compareUnsigned(range, RangeEncoder.TOP) < 0) {
+            range <<= 8;
+            code = (code << 8) | nextByte();
+        }
+        return bit;
+    }
+
+    /**
+     * Decode one bit with a probability of one half
+     * @return bit
+     * @throws IOException exception
+     */
+    private int decodeDirectBit() throws IOException {
+        range >>>= 1;
+        // t is 1 when the code is below the half range
+        int t = (code - range) >>> 31;
+        code -= range & (t - 1);
+        if (Integer.compareUnsigned(range, RangeEncoder.TOP) < 0) {
+            range <<= 8;
+            code = (code << 8) | nextByte();
+        }
+        return 1 - t;
+    }
+
+    /**
+     * Read the next byte, a truncated stream reads as zero bytes and ends at the end flag
+     * @return byte
+     * @throws IOException exception
+     */
+    private int nextByte() throws IOException {
+        int b = readByte();
+        return b == -1 ? 0 : b;
+    }
+
+    /**
+     * Read one byte from the buffer
+     * @return byte, or -1 at the end of the input stream
+     * @throws IOException exception
+     */
+    private int readByte() throws IOException {
+        if (bufferPosition == bufferSize) {
+            bufferSize = in.read(buffer, 0, BUFFER_SIZE);
+            bufferPosition = 0;
+            if (bufferSize <= 0) {
+                bufferSize = 0;
+                return -1;
+            }
+        }
+        return buffer[bufferPosition++] & 0xFF;
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * RangeEncoder entropy-codes the LZW codes with an adaptive binary range coder, as in LZMA. The high bits of a code
+ * are coded MSB first down a bit tree, one tree per code width, so the frequent codes cost fewer bits. The low bits of
+ * the wide codes are nearly uniform and are written with a fixed probability of one half. Every code is preceded by a
+ * flag that tells the decoder another code follows.
+ */
+public class RangeEncoder implements LZWCodeWriter {
+    /**
+     * Number of bits of a probability
+     */
+    static final int PROBABILITY_BITS = 11;
+    /**
+     * Probability of one half
+     */
+    static final int HALF = 1 << (PROBABILITY_BITS - 1);
+    /**
+     * Speed of the adaptation, a probability moves by 1/32 of its distance to the seen bit
+     */
+    static final int MOVE_BITS = 5;
+    /**
+     * The range is shifted when it falls below this value
+     */
+    static final int TOP = 1 << 24;
+    /**
+     * Max number of high bits of a code coded down the bit tree
+     */
+    static final int TREE_BITS = 16;
+    /**
+     * Size of the byte buffer
+     */
+    private static final int BUFFER_SIZE = 1 << 13;
+    /**
+     * Output stream
+     */
+    private OutputStream out;
+    /**
+     * Low end of the range, 33 bits with the carry
+     */
+    private long low;
+    /**
+     * Size of the range, unsigned
+     */
+    private int range = -1;
+    /**
+     * Byte held back until the carry is known
+     */
+    private int cache;
+    /**
+     * Number of bytes held back, the cached byte and the 0xFF bytes after it
+     */
+    private long cacheSize = 1;
+    /**
+     * Probability of the flag that another code follows
+     */
+    private short[] more = newProbabilities(1);
+    /**
+     * Bit tree of every code width, created when the width is first used
+     */
+    private short[][] trees = new short[33][];
+    /**
+     * Bytes not written to the output stream yet
+     */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    /**
+     * Number of bytes in the buffer
+     */
+    private int bufferSize;
+    /**
+     * Number of bytes given to the buffer so far
+     */
+    private long bytesWritten;
+    /**
+     * Whether the end flag has been written
+     */
+    private boolean finished;
+
+    /**
+     * Constructor method
+     * @param out output stream
+     */
+    public RangeEncoder(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Create probabilities of one half
+     * @param size number of probabilities
+     * @return probabilities
+     */
+    static short[] newProbabilities(int size) {
+        short[] probabilities = new short[size];
+        Arrays.fill(probabilities, (short) HALF);
+        return probabilities;
+    }
+
+    /**
+     * Code the low bits of the value
+     * @param value value to write
+     * @param width number of bits, 1 to 32
+     * @throws IOException exception
+     */
+    public void writeBits(int value, int width) throws IOException {
+        encodeBit(more, 0, 1);
+        int treeBits = Math.min(width, TREE_BITS);
+        if (trees[width] == null) {
+            trees[width] = newProbabilities(1 << treeBits);
+        }
+        short[] tree = trees[width];
+        int node = 1;
+        for (int i = width - 1; i >= width - treeBits; i--) {
+            int bit = (value >>> i) & 1;
+            encodeBit(tree, node, bit);
+            node = (node << 1) | bit;
+        }
+        for (int i = width - treeBits - 1; i >= 0; i--) {
+            encodeDirectBit((value >>> i) & 1);
+        }
+    }
+
+    /**
+     * Get the number of bits written so far, the held back bytes included
+     * @return number of bits written
+     */
+    public long getBitsWritten() {
+        return (bytesWritten + cacheSize) * 8;
+    }
+
+    /**
+     * Write the bytes given to the buffer to the output stream and flush it. The bytes held back for the carry stay.
+     * @throws IOException exception
+     */
+    public void flushCompleteBytes() throws IOException {
+        out.write(buffer, 0, bufferSize);
+        bufferSize = 0;
+        out.flush();
+    }
+
+    /**
+     * Write the end flag and all the bytes of the range to the output stream
+     * @throws IOException exception
+     */
+    public void flush() throws IOException {
+        if (!finished) {
+            finished = true;
+            encodeBit(more, 0, 0);
+            for (int i = 0; i < 5; i++) {
+                shiftLow();
+            }
+        }
+        flushCompleteBytes();
+    }
+
+    /**
+     * Flush the codes and close the output stream
+     * @throws IOException exception
+     */
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    /**
+     * Code one bit with an adaptive probability
+     * @param probabilities probabilities
+     * @param index index of the probability of a zero bit
+     * @param bit bit
+     * @throws IOException exception
+     */
+    private void encodeBit(short[] probabilities, int index, int bit) throws IOException {
+        int probability = probabilities[index];
+        int bound = (range >>> PROBABILITY_BITS) * probability;
+        if (bit == 0) {
+            range = bound;
+            probabilities[index] = (short) (probability + (((1 << PROBABILITY_BITS) - probability) >>> MOVE_BITS));
+        } else {
+            low += bound & 0xFFFFFFFFL;
+            range -= bound;
+            probabilities[index] = (short) (probability - (probability >>> MOVE_BITS));
+        }
+        while (Integer.compareUnsigned(range, TOP) < 0) {
+            range <<= 8;
+            shiftLow();
+        }
+    }
+
+    /**
+     * Code one bit with a probability of one half
+     * @param bit bit
+     * @throws IOException exception
+     */
+    private void encodeDirectBit(int bit) throws IOException {
+        range >>>= 1;
+        if (bit != 0) {
+            low += range & 0xFFFFFFFFL;
+        }
+        if (Integer.compareUnsigned(range, TOP) < 0) {
+            range <<= 8;
+            shiftLow();
+        }
+    }
+
+    /**
+     * Move the top byte of low out, a byte is held back while a carry may still reach it
+     * @throws IOException exception
+     */
+    private void shiftLow() throws IOException {
+        if (low < 0xFF000000L || low > 0xFFFFFFFFL) {
+            int carry = (int) (low >>> 32);
+            int pending = cache;
+            do {
+                writeByte(pending + carry);
+                pending = 0xFF;
+            } while (--cacheSize != 0);
+            cache = (int) (low >>> 24) & 0xFF;
+        }
+        cacheSize++;
+        low = (low & 0x00FFFFFFL) << 8;
+    }
+
+    /**
+     * Give one byte to the buffer
+     * @param b byte
+     * @throws IOException exception
+     */
+    private void writeByte(int b) throws IOException {
+        buffer[bufferSize++] = (byte) b;
+        bytesWritten++;
+        if (bufferSize == BUFFER_SIZE) {
+            out.write(buffer, 0, bufferSize);
+            bufferSize = 0;
+        }
+    }
+}